@@ -0,0 +1,72 @@
+package benchmarks;
+
+import moviedata.LazyMovieData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Del cuerpo de la respuesta al resultado parseado, como lo hace el cliente: se descomprime si hace falta y
+ * se parsea directamente desde los bytes. Los bytes alocados por operación los da el profiler de GC; los que
+ * viajan por la red se muestran al preparar cada fixture.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Body {
+
+        @Param({"search_page", "detail_large"})
+        public String fixture;
+
+        @Param({"identity", "gzip"})
+        public String encoding;
+
+        byte[] json;
+        byte[] wire;
+        boolean search;
+
+        @Setup
+        public void setUp() throws IOException {
+
+            json = Fixtures.loadBytes(fixture);
+            search = fixture.startsWith("search");
+            if (encoding.equals("gzip")) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                try (OutputStream out = new GZIPOutputStream(buffer)) {
+                    out.write(json);
+                }
+                wire = buffer.toByteArray();
+            } else {
+                wire = json;
+            }
+            System.out.printf("%n%s con %s: %d bytes en la red (%d sin comprimir)%n",
+                    fixture, encoding, wire.length, json.length);
+        }
+    }
+
+    @Benchmark
+    public Object viaBytes(Body b) throws Throwable {
+
+        byte[] json = Fixtures.decodeBody(b.wire, b.encoding);
+        return b.search ? Fixtures.parseSearchPage(json) : LazyMovieData.parse(json, "Detalles");
+    }
+}
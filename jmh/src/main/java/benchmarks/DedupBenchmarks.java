@@ -0,0 +1,64 @@
+package benchmarks;
+
+import moviedata.MovieData;
+import moviedata.MovieDataIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eliminación de duplicados al juntar resultados (como pasa al buscar en un rango de años): cada resultado
+ * aparece dos veces, en orden mezclado. Compara un {@link LinkedHashSet LinkedHashSet} (que depende de
+ * equals/hashCode de MovieData) con {@link MovieDataIndex MovieDataIndex} (indexado por ID).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DedupBenchmarks {
+
+    @Param({"search_page", "search_large"})
+    public String fixture;
+
+    private List<MovieData> withDuplicates;
+
+    @Setup
+    public void setUp() throws Throwable {
+
+        LinkedHashSet<MovieData> results = Fixtures.parseSearchResults(Fixtures.loadBytes(fixture));
+        // Se vuelve a parsear para que los duplicados sean objetos distintos, como cuando vienen de otra página
+        LinkedHashSet<MovieData> again = Fixtures.parseSearchResults(Fixtures.loadBytes(fixture));
+        withDuplicates = new ArrayList<>(results);
+        withDuplicates.addAll(again);
+        Collections.shuffle(withDuplicates, new Random(42));
+    }
+
+    @Benchmark
+    public LinkedHashSet<MovieData> linkedHashSet() {
+        return new LinkedHashSet<>(withDuplicates);
+    }
+
+    @Benchmark
+    public MovieDataIndex movieDataIndex() {
+        MovieDataIndex index = new MovieDataIndex();
+        index.addAll(withDuplicates);
+        return index;
+    }
+}
@@ -0,0 +1,80 @@
+package benchmarks;
+
+import moviedata.MovieData;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.LinkedHashSet;
+
+/**
+ * Respuestas grabadas de la API y acceso a los métodos privados de {@link OmdbClient OmdbClient} que se
+ * miden. Se usan MethodHandles en campos static final en lugar de reflexión: el JIT los trata como
+ * constantes y la llamada cuesta lo mismo que una directa, así no se mide el costo de Method.invoke.
+ */
+final class Fixtures {
+
+    static final MethodHandle BUILD_QUERY_STRING;
+    static final MethodHandle DECODE_BODY;
+    static final MethodHandle PARSE_SEARCH_PAGE;
+    static final MethodHandle SEARCH_PAGE_RESULTS;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(OmdbClient.class, MethodHandles.lookup());
+            BUILD_QUERY_STRING = lookup.findVirtual(OmdbClient.class, "buildQueryString",
+                    MethodType.methodType(String.class, RequestParams.class, boolean.class));
+            DECODE_BODY = lookup.findStatic(lookup.findClass("omdb.BodyDecoder"), "decode",
+                    MethodType.methodType(byte[].class, byte[].class, String.class));
+            // SearchPage es privada, se devuelve como Object
+            Class<?> searchPage = lookup.findClass("omdb.OmdbClient$SearchPage");
+            PARSE_SEARCH_PAGE = lookup.findStatic(OmdbClient.class, "parseSearchPage",
+                    MethodType.methodType(searchPage, byte[].class))
+                    .asType(MethodType.methodType(Object.class, byte[].class));
+            SEARCH_PAGE_RESULTS = lookup.findGetter(searchPage, "results", LinkedHashSet.class)
+                    .asType(MethodType.methodType(LinkedHashSet.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Fixtures() {
+
+    }
+
+    /**
+     * @param name nombre del fixture, sin la extensión (por ejemplo "search_large")
+     * @return el Json grabado, en UTF-8
+     */
+    static byte[] loadBytes(String name) {
+
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name + ".json")) {
+            if (in == null) throw new IOException("No se encontró el fixture " + name);
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String buildQueryString(OmdbClient client, RequestParams params, boolean searchAll) throws Throwable {
+        return (String) BUILD_QUERY_STRING.invokeExact(client, params, searchAll);
+    }
+
+    static byte[] decodeBody(byte[] body, String contentEncoding) throws Throwable {
+        return (byte[]) DECODE_BODY.invokeExact(body, contentEncoding);
+    }
+
+    static Object parseSearchPage(byte[] json) throws Throwable {
+        return (Object) PARSE_SEARCH_PAGE.invokeExact(json);
+    }
+
+    @SuppressWarnings("unchecked")
+    static LinkedHashSet<MovieData> parseSearchResults(byte[] json) throws Throwable {
+        return (LinkedHashSet<MovieData>) (LinkedHashSet<?>) SEARCH_PAGE_RESULTS.invokeExact(parseSearchPage(json));
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import moviedata.LazyMovieData;
+import moviedata.MovieData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parseo de respuestas de la API tal como lo hace el cliente, desde los bytes: búsquedas (una página y 1000
+ * resultados) y detalles (chico y grande, con el parseo diferido de {@link LazyMovieData LazyMovieData})
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class SearchJson {
+
+        @Param({"search_page", "search_large"})
+        public String fixture;
+
+        byte[] json;
+
+        @Setup
+        public void setUp() {
+            json = Fixtures.loadBytes(fixture);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DetailJson {
+
+        @Param({"detail_small", "detail_large"})
+        public String fixture;
+
+        byte[] json;
+
+        @Setup
+        public void setUp() {
+            json = Fixtures.loadBytes(fixture);
+        }
+    }
+
+    @Benchmark
+    public LinkedHashSet<MovieData> parseSearchResults(SearchJson s) throws Throwable {
+        return Fixtures.parseSearchResults(s.json);
+    }
+
+    @Benchmark
+    public MovieData parseDetails(DetailJson s) {
+        return LazyMovieData.parse(s.json, "Detalles");
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import omdb.OmdbClient;
+import omdb.RequestParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Armado de la query ({@code buildQueryString}) para un pedido de detalles, una búsqueda simple y una
+ * búsqueda con todas las opciones
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryStringBenchmarks {
+
+    private OmdbClient client;
+    private RequestParams details;
+    private RequestParams simpleSearch;
+    private RequestParams fullSearch;
+
+    @Setup
+    public void setUp() {
+
+        client = new OmdbClient("http://www.omdbapi.com/", "e4837c5e");
+
+        details = new RequestParams();
+        details.setId("tt0113568");
+
+        simpleSearch = new RequestParams();
+        simpleSearch.setTitle("batman");
+
+        fullSearch = new RequestParams();
+        fullSearch.setTitle("star_wars:_the_empire_strikes_back");
+        fullSearch.setType("movie");
+        fullSearch.setYear("1980");
+        fullSearch.setPage("3");
+    }
+
+    @TearDown
+    public void tearDown() {
+        client.close();
+    }
+
+    @Benchmark
+    public String details() throws Throwable {
+        return Fixtures.buildQueryString(client, details, false);
+    }
+
+    @Benchmark
+    public String simpleSearch() throws Throwable {
+        return Fixtures.buildQueryString(client, simpleSearch, true);
+    }
+
+    @Benchmark
+    public String fullSearch() throws Throwable {
+        return Fixtures.buildQueryString(client, fullSearch, true);
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import moviedata.LazyMovieData;
+import moviedata.MovieData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversión a texto ({@link MovieData#toString toString()}, {@link MovieData#toStringIndented
+ * toStringIndented()}) y búsqueda del ID ({@link MovieData#getId getId()}) sobre datos ya parseados, como
+ * los parsea el cliente
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmarks {
+
+    @State(Scope.Benchmark)
+    public static class Details {
+
+        @Param({"detail_small", "detail_large"})
+        public String fixture;
+
+        MovieData movie;
+
+        @Setup
+        public void setUp() throws Throwable {
+            movie = LazyMovieData.parse(Fixtures.loadBytes(fixture), "Detalles");
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class SearchResults {
+
+        @Param({"search_page", "search_large"})
+        public String fixture;
+
+        MovieData[] movies;
+
+        @Setup
+        public void setUp() throws Throwable {
+            movies = Fixtures.parseSearchResults(Fixtures.loadBytes(fixture)).toArray(new MovieData[0]);
+        }
+    }
+
+    @Benchmark
+    public String detailsToString(Details s) {
+        return s.movie.toString();
+    }
+
+    @Benchmark
+    public String detailsToStringIndented(Details s) {
+        return s.movie.toStringIndented(2);
+    }
+
+    @Benchmark
+    public String detailsGetId(Details s) {
+        return s.movie.getId();
+    }
+
+    @Benchmark
+    public void searchResultsToString(SearchResults s, Blackhole bh) {
+        for (MovieData m : s.movies)
+            bh.consume(m.toString());
+    }
+
+    @Benchmark
+    public void searchResultsGetId(SearchResults s, Blackhole bh) {
+        for (MovieData m : s.movies)
+            bh.consume(m.getId());
+    }
+}
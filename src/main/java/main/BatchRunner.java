@@ -0,0 +1,218 @@
+package main;
+
+import com.google.gson.stream.JsonWriter;
+import moviedata.MovieData;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+import utils.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Modo no interactivo: lee comandos (uno por línea, con la misma sintaxis que la consola) y escribe el
+ * resultado de cada uno como una línea de Json (JSON Lines), en el mismo orden en que se leyeron.
+ *
+ * Los comandos se ejecutan en paralelo, como mucho {@code parallelism} a la vez, y se van leyendo y
+ * escribiendo a medida que avanzan: no hace falta leer todo el archivo antes de empezar ni guardar todos
+ * los resultados antes de escribirlos.
+ *
+ * Igual que en la consola, un número pide los detalles de un resultado de la última búsqueda anterior a
+ * esa línea (espera a que termine esa búsqueda). Las líneas vacías o que empiezan con # se ignoran.
+ *
+ * Cada línea de salida tiene el comando ("command") y los resultados ("results" para una búsqueda,
+ * "result" para los detalles) o el error ("error").
+ */
+public class BatchRunner {
+
+    private final OmdbClient client;
+    private final int parallelism;
+
+    private long commands = 0;
+    private long errors = 0;
+    private long elapsedNanos = 0;
+
+    /**
+     * @param client cliente con el que ejecutar los comandos
+     * @param parallelism cantidad máxima de comandos en ejecución al mismo tiempo
+     */
+    public BatchRunner(OmdbClient client, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism debe ser al menos 1");
+        this.client = client;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Ejecuta todos los comandos de la entrada y escribe sus resultados
+     * @param in comandos, uno por línea
+     * @param out destino de los resultados (no se cierra)
+     * @throws IOException si falla la lectura o la escritura
+     */
+    public void run(BufferedReader in, Writer out) throws IOException {
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        // Resultados pendientes de escribir, en orden. Se limitan para no adelantarse demasiado en la lectura.
+        Deque<CompletableFuture<String>> pending = new ArrayDeque<>();
+        int window = 4 * parallelism;
+        CompletableFuture<MovieData[]> lastSearch = null;
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                String command = line;
+                String[] tokens = line.split("\\s+");
+                commands++;
+                if (! Main.validateInput(tokens)) {
+                    pending.add(CompletableFuture.completedFuture(error(command, "Entrada inválida")));
+                } else if (StringUtils.isInteger(tokens[0])) {
+                    CompletableFuture<MovieData[]> search = lastSearch;
+                    int index = Integer.parseInt(tokens[0]) - 1;
+                    pending.add(CompletableFuture.supplyAsync(() -> details(command, search, index), pool));
+                } else {
+                    RequestParams params = new RequestParams();
+                    Main.setParams(params, tokens);
+                    CompletableFuture<MovieData[]> search = CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return client.search(params);
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    }, pool);
+                    lastSearch = search;
+                    pending.add(search.handle((movies, e) -> e != null ? error(command, e) : results(command, movies)));
+                }
+
+                while (pending.size() >= window || (! pending.isEmpty() && pending.peek().isDone()))
+                    writeNext(pending, out);
+            }
+            while (! pending.isEmpty())
+                writeNext(pending, out);
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+            elapsedNanos = System.nanoTime() - start;
+        }
+    }
+
+    private void writeNext(Deque<CompletableFuture<String>> pending, Writer out) throws IOException {
+
+        CompletableFuture<String> next = pending.poll();
+        if (! next.isDone())
+            out.flush(); // Mostrar lo que ya está listo antes de esperar
+        String line = next.join();
+        out.write(line);
+        out.write('\n');
+    }
+
+    /**
+     * Pide los detalles de un resultado de una búsqueda anterior. Se ejecuta en el pool, pero no hay riesgo
+     * de que se quede esperando una búsqueda que no puede empezar: la búsqueda se envió antes y el pool las
+     * inicia en orden de llegada.
+     */
+    private String details(String command, CompletableFuture<MovieData[]> search, int index) {
+
+        if (search == null)
+            return error(command, "No hay una búsqueda anterior");
+        try {
+            MovieData[] movies = search.join();
+            if (index < 0 || index >= movies.length)
+                return error(command, "Entrada inválida");
+            RequestParams params = new RequestParams();
+            params.setId(movies[index].getId());
+            MovieData details = client.getById(params);
+
+            long start = System.nanoTime();
+            StringWriter sw = new StringWriter();
+            JsonWriter json = new JsonWriter(sw);
+            json.beginObject();
+            json.name("command").value(command);
+            json.name("result");
+            details.writeJson(json);
+            json.endObject();
+            client.getMetrics().recordRender(System.nanoTime() - start);
+            return sw.toString();
+        } catch (Exception e) {
+            return error(command, e);
+        }
+    }
+
+    private String results(String command, MovieData[] movies) {
+
+        long start = System.nanoTime();
+        StringWriter sw = new StringWriter();
+        try (JsonWriter json = new JsonWriter(sw)) {
+            json.beginObject();
+            json.name("command").value(command);
+            json.name("results").beginArray();
+            for (MovieData m : movies)
+                m.writeJson(json);
+            json.endArray();
+            json.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // Un StringWriter nunca lanza IOException
+        }
+        client.getMetrics().recordRender(System.nanoTime() - start);
+        return sw.toString();
+    }
+
+    private String error(String command, Throwable e) {
+
+        while (e.getCause() != null && (e instanceof RuntimeException || e.getMessage() == null))
+            e = e.getCause();
+        return error(command, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+    }
+
+    private String error(String command, String message) {
+
+        synchronized (this) {
+            errors++;
+        }
+        StringWriter sw = new StringWriter();
+        try (JsonWriter json = new JsonWriter(sw)) {
+            json.beginObject();
+            json.name("command").value(command);
+            json.name("error").value(message);
+            json.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return sw.toString();
+    }
+
+    /**
+     * @return cantidad de comandos leídos en la última ejecución
+     */
+    public long getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return cantidad de comandos que terminaron con error
+     */
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return comandos por segundo de la última ejecución
+     */
+    public double getQueriesPerSecond() {
+        return elapsedNanos == 0 ? 0 : commands * 1e9 / elapsedNanos;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
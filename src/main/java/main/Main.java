@@ -1,15 +1,35 @@
 package main;
 
 import moviedata.MovieData;
+import omdb.ClientOptions;
 import omdb.OmdbClient;
+import omdb.QuotaExceededException;
+import omdb.Ranking;
 import omdb.RequestParams;
+import server.OmdbServer;
 import utils.StringUtils;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Clase principal, se encarga de mostrar el menú donde se ve la sintaxis de uso del programa,
@@ -22,25 +42,58 @@ public class Main {
     private static final String baseUrl = "http://www.omdbapi.com/";
     private static final String apiKey = "e4837c5e";
     private static final List<String> tipos = Arrays.asList("series", "movie", "episode");
+    private static final List<String> orden = Arrays.asList("puntaje", "metascore", "votos");
+    private static final int serverPort = 8080;
+    private static final int serverThreads = 64;
+    private static final int serverQueueCapacity = 4096;
 
     public static void main(String[] args) {
 
-        Scanner sc = new Scanner(System.in);
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args.length > 1 ? args[1] : null));
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            runServer(args.length > 1 ? args[1] : null);
+            return;
+        }
+
+        Console console = new Console();
+        console.start();
         String input;
         MovieData[] movies = new MovieData[]{};
         RequestParams params = new RequestParams();
-        OmdbClient client = new OmdbClient(baseUrl, apiKey);
+        ClientOptions options = buildOptions();
+        // Casi siempre después de buscar se elige uno de los primeros resultados
+        options.setPrefetchCount(3);
+        OmdbClient client = new OmdbClient(baseUrl, apiKey, options);
+        // Si el programa termina de otra forma (kill, o Ctrl+C cuando no se pudo atrapar), se cancela lo que
+        // esté en curso y se cierra el cliente
+        Thread shutdown = new Thread(() -> {
+            console.cancel();
+            client.close();
+        }, "cierre");
+        Runtime.getRuntime().addShutdownHook(shutdown);
 
         printMenu();
 
         while (true) {
 
-            // Obtener input
+            // Obtener input (se bloquea hasta que haya una línea, sin consumir CPU)
             System.out.print("> ");
-            while (! sc.hasNextLine())
-                ;
-            input = sc.nextLine();
-            String[] tokens = input.split("\\s+");
+            Object line;
+            try {
+                line = console.input.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (line == Console.EOF)
+                break;
+            input = (String) line;
+            if (input.trim().equalsIgnoreCase(Console.CANCEL)) {
+                System.out.println("No hay ninguna petición en curso");
+                continue;
+            }
+            String[] tokens = input.trim().split("\\s+");
             if (! validateInput(tokens)) {
                 System.out.println("Entrada inválida");
                 continue;
@@ -50,21 +103,28 @@ public class Main {
 
             // Si se ingresó un número, mostrar detalles de un metraje
             if (StringUtils.isInteger(tokens[0])) {
+                console.begin();
                 try {
                     String id = movies[Integer.parseInt(tokens[0]) - 1].getId();
                     params.setId(id);
                     MovieData detalles = client.getById(params);
-                    System.out.println(detalles.toString());
+                    long start = System.nanoTime();
+                    printResults(new MovieData[]{detalles}, false);
+                    client.getMetrics().recordRender(System.nanoTime() - start);
+                } catch (QuotaExceededException e) {
+                    System.out.println("Error: Se agotó la cuota diaria de peticiones de la API!");
                 } catch (IOException e) {
                     System.out.println("Error al hacer la petición!");
                 } catch (InterruptedException e) {
-                    System.out.println("Error: El hilo fue interrumpido antes de recibir una respuesta del servidor!");
+                    System.out.println("Cancelado");
                 } catch (URISyntaxException e) {
                     System.out.println("Error: URL mal formada!");
                 } catch (ArrayIndexOutOfBoundsException e) {
                     System.out.println("Entrada inválida");
                 } catch (Exception e) {
                     e.printStackTrace();
+                } finally {
+                    console.end();
                 }
                 continue;
             }
@@ -72,24 +132,389 @@ public class Main {
             // Setear parámetros de la petición
             setParams(params, tokens);
 
-            // Enviar petición
+            // Enviar petición y mostrar los resultados a medida que llegan
+            console.begin();
             try {
-                movies = client.search(params);
+                movies = streamResults(client, params);
+                System.out.println("Se encontraron " + movies.length + " resultados\n");
+                ClientOptions.RankBy rankBy = parseRankBy(tokens);
+                if (rankBy != null && movies.length > 0)
+                    showRanking(client, movies, rankBy);
+            } catch (QuotaExceededException e) {
+                System.out.println("Error: Se agotó la cuota diaria de peticiones de la API!");
+                movies = new MovieData[]{};
             } catch (IOException e) {
                 System.out.println("Error al hacer la petición!");
+                movies = new MovieData[]{};
             } catch (InterruptedException e) {
-                System.out.println("Error: El hilo fue interrumpido antes de recibir una respuesta del servidor!");
+                System.out.println("Cancelado");
+                movies = new MovieData[]{};
             } catch (URISyntaxException e) {
                 System.out.println("Error: URL mal formada!");
+                movies = new MovieData[]{};
+            } finally {
+                console.end();
             }
-
-            // Mostrar resultados
-            System.out.println("Mostrando " + movies.length + " resultados:\n");
-            for (int i = 0; i < movies.length; ++i)
-                System.out.println((i+1)+ ". " + movies[i].toString());
             if (movies.length != 0)
                 System.out.println("(Ingresar número para ver los detalles completos de un metraje)\n");
         }
+
+        // Se terminó la entrada (o se pidió salir con Ctrl+C sin nada en curso)
+        System.out.println();
+        Runtime.getRuntime().removeShutdownHook(shutdown);
+        client.close();
+    }
+
+    /**
+     * Entrada de la consola. Un hilo lee las líneas y las deja en una cola, de donde las toma el hilo
+     * principal: así espera bloqueado en lugar de consultar la entrada una y otra vez, y mientras ejecuta un
+     * comando se puede seguir escribiendo.
+     *
+     * El comando "cancelar" o Ctrl+C interrumpen al hilo principal si está ejecutando un comando (ver
+     * {@link #begin begin()}). Las esperas del cliente ante una interrupción cancelan las peticiones en
+     * curso. Ctrl+C sin nada en curso, o el fin de la entrada, terminan el programa.
+     */
+    private static class Console {
+
+        static final Object EOF = new Object();
+        static final String CANCEL = "cancelar";
+
+        final BlockingQueue<Object> input = new LinkedBlockingQueue<>();
+        private Thread running = null;
+
+        void start() {
+
+            Thread reader = new Thread(() -> {
+                BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+                try {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        // Si no hay nada que cancelar, que lo informe el hilo principal
+                        if (! (line.trim().equalsIgnoreCase(CANCEL) && cancel()))
+                            input.add(line);
+                    }
+                } catch (IOException e) {
+                    // Como si se terminara la entrada
+                }
+                input.add(EOF);
+            }, "consola");
+            reader.setDaemon(true);
+            reader.start();
+            handleInterrupt();
+        }
+
+        /**
+         * Atrapa Ctrl+C (SIGINT) para cancelar el comando en curso en lugar de terminar el programa. Java no
+         * tiene una forma soportada de hacerlo: sun.misc.Signal (del módulo jdk.unsupported) se usa por
+         * reflexión, así compilar no depende de ella. Si no está, Ctrl+C termina el programa como siempre.
+         */
+        private void handleInterrupt() {
+
+            try {
+                Class<?> signalClass = Class.forName("sun.misc.Signal");
+                Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+                Object handler = Proxy.newProxyInstance(handlerClass.getClassLoader(), new Class<?>[]{handlerClass},
+                        (proxy, method, args) -> {
+                            switch (method.getName()) {
+                                case "handle":
+                                    if (! cancel())
+                                        input.add(EOF);
+                                    return null;
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                case "equals":
+                                    return proxy == args[0];
+                                default:
+                                    return "Ctrl+C";
+                            }
+                        });
+                Object signal = signalClass.getConstructor(String.class).newInstance("INT");
+                signalClass.getMethod("handle", signalClass, handlerClass).invoke(null, signal, handler);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // No hay forma de atrapar la señal en esta plataforma: queda "cancelar"
+            }
+        }
+
+        /**
+         * Marca que el hilo actual empieza un comando que se puede cancelar
+         */
+        synchronized void begin() {
+            running = Thread.currentThread();
+        }
+
+        /**
+         * Marca que terminó el comando. Si justo se canceló, descarta la interrupción para que no afecte al
+         * siguiente
+         */
+        void end() {
+            synchronized (this) {
+                running = null;
+            }
+            Thread.interrupted();
+        }
+
+        /**
+         * @return true si había un comando en curso (y se lo interrumpió)
+         */
+        synchronized boolean cancel() {
+
+            if (running == null) return false;
+            running.interrupt();
+            running = null;
+            return true;
+        }
+    }
+
+    /**
+     * Ejecuta los comandos de un archivo (o de la entrada estándar) con {@link BatchRunner BatchRunner},
+     * escribiendo los resultados como JSON Lines en la salida estándar y un resumen en la salida de errores
+     * @param file archivo con los comandos, o null para leerlos de la entrada estándar
+     * @return código de salida del programa: 0 si todos los comandos terminaron bien, 1 si alguno falló,
+     * 2 si no se pudo leer la entrada o escribir la salida
+     */
+    private static int runBatch(String file) {
+
+        ClientOptions options = buildOptions();
+        options.setJmxName("batch");
+        try (OmdbClient client = new OmdbClient(baseUrl, apiKey, options);
+             BufferedReader in = file == null
+                     ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                     : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8)) {
+
+            // No se cierra el Writer porque cerraría System.out
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            BatchRunner runner = new BatchRunner(client, options.getMaxConcurrentRequests());
+            runner.run(in, out);
+            System.err.printf("%d consultas en %.2f s (%.1f consultas/s), %d con error%n", runner.getCommands(),
+                    runner.getElapsedNanos() / 1e9, runner.getQueriesPerSecond(), runner.getErrors());
+            return runner.getErrors() == 0 ? 0 : 1;
+        } catch (IOException e) {
+            System.err.println("Error al leer los comandos o escribir los resultados: " + e.getMessage());
+            return 2;
+        }
+    }
+
+    /**
+     * Inicia el {@link OmdbServer servidor HTTP}, que queda atendiendo peticiones hasta que se termina el
+     * proceso (por ejemplo con Ctrl+C o docker stop). Al terminar deja de aceptar conexiones, espera a que
+     * se respondan las peticiones en curso y cierra el cliente.
+     * @param port puerto donde escuchar, o null para usar el predeterminado
+     */
+    private static void runServer(String port) {
+
+        if (port != null && ! StringUtils.isInteger(port)) {
+            System.err.println("Puerto inválido: " + port);
+            System.exit(2);
+        }
+        ClientOptions options = buildOptions();
+        options.setJmxName("server");
+        options.setMetricsLogInterval(Duration.ofMinutes(1));
+        OmdbClient client = new OmdbClient(baseUrl, apiKey, options);
+        try {
+            OmdbServer server = new OmdbServer(client,
+                    new InetSocketAddress(port == null ? serverPort : Integer.parseInt(port)),
+                    serverThreads, serverQueueCapacity);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(10);
+                client.close();
+            }));
+            server.start();
+            System.err.println("Escuchando en el puerto " + server.getAddress().getPort());
+        } catch (IOException e) {
+            System.err.println("No se pudo iniciar el servidor: " + e.getMessage());
+            client.close();
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Arma las opciones del cliente a partir de variables de entorno:
+     *  - OMDB_CACHE_DIR: directorio para la caché persistente de respuestas (si no está, no se usa)
+     * @return las opciones para el cliente de OMDB
+     */
+    private static ClientOptions buildOptions() {
+
+        ClientOptions options = new ClientOptions();
+        String cacheDir = System.getenv("OMDB_CACHE_DIR");
+        if (cacheDir != null && ! cacheDir.isBlank())
+            options.setCacheDirectory(Path.of(cacheDir));
+        return options;
+    }
+
+    /**
+     * Muestra datos de metrajes en la consola, con el mismo formato que su toString(). El texto se escribe
+     * directamente en un buffer que se vuelca de una vez a la consola, en lugar de armar un String por
+     * resultado e imprimirlo línea por línea.
+     * @param movies datos a mostrar
+     * @param numbered si es true, cada metraje se numera a partir de 1
+     * @throws IOException si falla la escritura en la consola
+     */
+    private static void printResults(MovieData[] movies, boolean numbered) throws IOException {
+
+        // No se cierra el Writer porque cerraría System.out
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16);
+        for (int i = 0; i < movies.length; ++i) {
+            if (numbered)
+                out.append(Integer.toString(i + 1)).append(". ");
+            movies[i].render(out, 0);
+            out.append(System.lineSeparator());
+        }
+        out.flush();
+    }
+
+    /**
+     * Hace una búsqueda con {@link OmdbClient#searchStream OmdbClient.searchStream()} y muestra cada resultado
+     * en cuanto llega, numerado en orden de llegada. Los resultados se piden de a uno y se escriben desde este
+     * hilo, así la consola no se mezcla con los hilos del cliente.
+     * @param client cliente con el que buscar
+     * @param params parámetros de la búsqueda
+     * @return los resultados en el mismo orden en que se mostraron, para elegirlos después por su número
+     * @throws IOException si fallan todas las queries o la escritura en la consola
+     * @throws InterruptedException si es interrumpido antes de que termine la búsqueda
+     * @throws URISyntaxException si la URI está malformada
+     */
+    private static MovieData[] streamResults(OmdbClient client, RequestParams params)
+            throws IOException, InterruptedException, URISyntaxException {
+
+        QueueSubscriber subscriber = new QueueSubscriber();
+        client.searchStream(params).subscribe(subscriber);
+
+        List<MovieData> movies = new ArrayList<>();
+        // No se cierra el Writer porque cerraría System.out
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, System.out.charset()), 1 << 16);
+        long renderNanos = 0;
+        try {
+            while (true) {
+                Object event = subscriber.events.take();
+                if (event == QueueSubscriber.DONE)
+                    break;
+                if (event instanceof Throwable) {
+                    Throwable t = (Throwable) event;
+                    if (t instanceof IOException) throw (IOException) t;
+                    if (t instanceof URISyntaxException) throw (URISyntaxException) t;
+                    throw new IOException("Error al procesar la respuesta", t);
+                }
+                long start = System.nanoTime();
+                MovieData movie = (MovieData) event;
+                movies.add(movie);
+                out.append(Integer.toString(movies.size())).append(". ");
+                movie.render(out, 0);
+                out.append(System.lineSeparator());
+                out.flush();
+                renderNanos += System.nanoTime() - start;
+                subscriber.subscription.request(1);
+            }
+        } catch (InterruptedException e) {
+            subscriber.subscription.cancel();
+            throw e;
+        } finally {
+            client.getMetrics().recordRender(renderNanos);
+        }
+        return movies.toArray(new MovieData[0]);
+    }
+
+    /**
+     * Ordena los resultados de una búsqueda con {@link OmdbClient#rankAsync OmdbClient.rankAsync()}. Mientras
+     * llegan los detalles muestra cuáles van primeros, y al final los mejores, cada uno con el número que
+     * tiene en la lista de resultados (que es el que sirve para elegirlo).
+     * @param client cliente con el que pedir los detalles
+     * @param movies resultados de la búsqueda, en el orden en que se mostraron
+     * @param by puntaje por el que ordenar
+     * @throws IOException si falla la escritura en la consola
+     * @throws InterruptedException si es interrumpido antes de que termine (se cancelan los pedidos)
+     */
+    private static void showRanking(OmdbClient client, MovieData[] movies, ClientOptions.RankBy by)
+            throws IOException, InterruptedException {
+
+        BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        CompletableFuture<Ranking> future = client.rankAsync(movies, by, events::add);
+        future.whenComplete((r, t) -> events.add(t == null ? QueueSubscriber.DONE : t));
+
+        Ranking ranking = null;
+        try {
+            while (true) {
+                Object event = events.take();
+                if (event == QueueSubscriber.DONE)
+                    break;
+                if (event instanceof Throwable)
+                    throw new IOException("Error al ordenar los resultados", (Throwable) event);
+                // Ranking parcial: los primeros 3 hasta ahora
+                ranking = (Ranking) event;
+                MovieData[] top = ranking.getTop();
+                StringBuilder sb = new StringBuilder("  ... ").append(ranking.getEnriched()).append(" de ")
+                        .append(ranking.getCandidates()).append(':');
+                for (int i = 0; i < Math.min(3, top.length); ++i)
+                    sb.append(i == 0 ? " " : ", ").append(describe(ranking, top[i]));
+                System.out.println(sb);
+            }
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        }
+        ranking = future.join();
+
+        // Los números no cambian: siguen eligiendo el metraje que se mostró con ellos en la lista
+        List<MovieData> shown = Arrays.asList(movies);
+        StringBuilder sb = new StringBuilder("Mejores por ").append(orden.get(by.ordinal() - 1)).append(":\n");
+        for (MovieData m : ranking.getTop())
+            sb.append(shown.indexOf(m) + 1).append(". ").append(describe(ranking, m)).append('\n');
+        if (ranking.getFailed() > 0)
+            sb.append("(No se pudieron obtener los detalles de ").append(ranking.getFailed()).append(" resultados)\n");
+        System.out.println(sb);
+    }
+
+    /**
+     * @return título, año y puntaje de un metraje, en una línea
+     */
+    private static String describe(Ranking ranking, MovieData details) {
+
+        double score = ranking.getScore(details);
+        return details.getValue("Title") + " (" + details.getValue("Year") + ") "
+                + (score == Math.rint(score) ? Long.toString((long) score) : Double.toString(score));
+    }
+
+    /**
+     * @param tokens Tokens que componen un comando válido
+     * @return por qué ordenar los resultados según la opción -o, o null si no se pidió
+     */
+    static ClientOptions.RankBy parseRankBy(String[] tokens) {
+
+        for (int i = 2; i + 1 < tokens.length; ++i)
+            if (tokens[i].equals("-o"))
+                return ClientOptions.RankBy.values()[orden.indexOf(tokens[i + 1]) + 1];
+        return null;
+    }
+
+    /**
+     * Suscriptor que deja los resultados (y el final del flujo) en una cola, para consumirlos desde el hilo
+     * principal. Pide de a un resultado: el siguiente se pide recién cuando se mostró el anterior.
+     */
+    private static class QueueSubscriber implements Flow.Subscriber<MovieData> {
+
+        static final Object DONE = new Object();
+        final BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(MovieData item) {
+            events.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            events.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            events.add(DONE);
+        }
     }
 
     /**
@@ -119,8 +544,10 @@ public class Main {
      *  - si luego de -y no viene un número entero
      *  - si luego de -r no vienen dos números enteros
      *  - si luego de -r vienen dos números enteros pero el primero es más grande que el segundo
+     *  - si luego de -o no viene un orden válido
+     *  - si hay alguna opción desconocida
      */
-    private static boolean validateInput(String[] tokens) {
+    static boolean validateInput(String[] tokens) {
 
         // Hay mejores formas de hacer esto pero seguro que el objetivo del ejercicio no es programar un parser
         if (tokens.length == 0) return false;
@@ -139,11 +566,17 @@ public class Main {
                     i += 2;
                     break;
                 case "-r":
-                    if (i+1 >= tokens.length || !StringUtils.isInteger(tokens[i+1])) return false;
-                    if (i+2 >= tokens.length || !StringUtils.isInteger(tokens[i+2])) return false;
-                    if (Integer.parseInt(tokens[i+1]) > Integer.parseInt(tokens[i+2])) return false;
+                    if (i+2 >= tokens.length || ! RequestParams.isValidYearRange(tokens[i+1], tokens[i+2]))
+                        return false;
                     i += 3;
                     break;
+                case "-a":
+                    i += 1;
+                    break;
+                case "-o":
+                    if (i+1 >= tokens.length || ! orden.contains(tokens[i+1])) return false;
+                    i += 2;
+                    break;
                 default:
                     return false;
             }
@@ -153,12 +586,12 @@ public class Main {
 
     /**
      * Setea los campos de un objeto {@link RequestParams RequestParams} con el título y las opciones pasadas
-     * por el usuario (año, tipo, rango de años)
+     * por el usuario (año, tipo, rango de años, todas las páginas)
      * @param params objeto donde se van a establecer los parámetros para una petición a la API
      * @param tokens Tokens que componen un comando válido
      * (tiene que haber sido validado previamente por {@link #validateInput validateInput}
      */
-    private static void setParams(RequestParams params, String[] tokens) {
+    static void setParams(RequestParams params, String[] tokens) {
 
         params.setTitle(tokens[1]);
         for (int i = 2; i < tokens.length; ++i) {
@@ -172,6 +605,10 @@ public class Main {
                 case "-r":
                     params.setYearRange(tokens[i+1], tokens[i+2]);
                     break;
+                case "-a":
+                    params.setAllPages(true);
+                    break;
+                // -o no es un parámetro de la petición, ver parseRankBy()
                 default:
             }
         }
@@ -0,0 +1,167 @@
+package moviedata;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Implementación compacta de {@link MovieData MovieData} para datos anidados (por ejemplo los detalles de
+ * una película). En lugar de un nodo por dato, guarda todos los datos de un nivel en dos arrays paralelos
+ * de nombres y valores; los valores son Strings (datos simples) u otros MovieData (datos anidados). Los
+ * nombres se toman del {@link KeyDictionary KeyDictionary}, así que no se repiten entre objetos.
+ *
+ * Es inmutable, se construye con un {@link Builder Builder}. Se muestra igual que lo haría el árbol
+ * equivalente de {@link MovieDataComposite MovieDataComposite} y {@link MovieDataLeaf MovieDataLeaf}.
+ */
+public final class CompactMovieData implements MovieData {
+
+    private static final String ID = "imdbID";
+
+    private final String name;
+    private final String[] keys;
+    private final Object[] values;
+    private final String id;
+
+    private CompactMovieData(String name, String[] keys, Object[] values) {
+        this.name = name;
+        this.keys = keys;
+        this.values = values;
+        this.id = findId();
+    }
+
+    /**
+     * Busca el ID primero entre los datos simples de este nivel y después en los anidados, igual que lo
+     * haría {@link MovieDataComposite#getId()} recorriendo los hijos en orden
+     */
+    private String findId() {
+
+        for (int i = 0; i < keys.length; ++i) {
+            if (values[i] instanceof String) {
+                if (keys[i].equals(ID)) return (String) values[i];
+            } else {
+                String childId = ((MovieData) values[i]).getId();
+                if (childId != null) return childId;
+            }
+        }
+        return null;
+    }
+
+    public void render(Appendable out, int depth) throws IOException {
+
+        out.append(Indent.of(depth)).append(name).append(":\n");
+        String indent = Indent.of(depth + 1);
+        for (int i = 0; i < keys.length; ++i) {
+            if (values[i] instanceof String)
+                out.append(indent).append(keys[i]).append(": ").append((String) values[i]).append('\n');
+            else
+                ((MovieData) values[i]).render(out, depth + 1);
+        }
+    }
+
+    public void writeJson(JsonWriter out) throws IOException {
+
+        out.beginObject();
+        for (int i = 0; i < keys.length; ++i) {
+            out.name(keys[i]);
+            if (values[i] instanceof String)
+                out.value((String) values[i]);
+            else
+                ((MovieData) values[i]).writeJson(out);
+        }
+        out.endObject();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param key nombre de un dato simple de este nivel (por ejemplo "Title")
+     * @return su valor, o null si no hay un dato simple con ese nombre
+     */
+    @Override
+    public String getValue(String key) {
+
+        for (int i = 0; i < keys.length; ++i)
+            if (values[i] instanceof String && keys[i].equals(key))
+                return (String) values[i];
+        return null;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String toString() {
+        return toStringIndented(0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (! (obj instanceof MovieData)) return false;
+        if (id == null) return false;
+        return id.equals(((MovieData) obj).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id == null ? System.identityHashCode(this) : id.hashCode();
+    }
+
+    /**
+     * Construye un {@link CompactMovieData CompactMovieData} agregando sus datos en orden
+     */
+    public static class Builder {
+
+        private final String name;
+        private String[] keys = new String[8];
+        private Object[] values = new Object[8];
+        private int size = 0;
+
+        /**
+         * @param name nombre del objeto a construir
+         */
+        public Builder(String name) {
+            this.name = name;
+        }
+
+        /**
+         * @param key nombre del dato
+         * @param value valor simple
+         * @return este mismo builder
+         */
+        public Builder add(String key, String value) {
+            return append(key, value);
+        }
+
+        /**
+         * @param key nombre del dato anidado
+         * @param child dato anidado (al mostrarlo se usa su propio nombre)
+         * @return este mismo builder
+         */
+        public Builder add(String key, MovieData child) {
+            return append(key, child);
+        }
+
+        private Builder append(String key, Object value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            keys[size] = KeyDictionary.intern(key);
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        /**
+         * @return el objeto construido, con arrays del tamaño justo
+         */
+        public CompactMovieData build() {
+            return new CompactMovieData(KeyDictionary.intern(name), Arrays.copyOf(keys, size),
+                    Arrays.copyOf(values, size));
+        }
+    }
+}
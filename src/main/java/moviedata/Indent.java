@@ -0,0 +1,31 @@
+package moviedata;
+
+/**
+ * Prefijos de indentación (tabulaciones) precalculados, para no tener que armarlos de nuevo en cada nodo
+ * al convertir un árbol de {@link MovieData MovieData} a texto
+ */
+class Indent {
+
+    private static final String[] PREFIXES = new String[16];
+
+    static {
+        PREFIXES[0] = "";
+        for (int i = 1; i < PREFIXES.length; ++i)
+            PREFIXES[i] = PREFIXES[i - 1] + "\t";
+    }
+
+    private Indent() {
+
+    }
+
+    /**
+     * @param depth profundidad en el árbol
+     * @return tantas tabulaciones como indique la profundidad
+     */
+    static String of(int depth) {
+
+        if (depth < PREFIXES.length)
+            return PREFIXES[depth];
+        return "\t".repeat(depth); // Los datos de la API nunca están tan anidados
+    }
+}
@@ -0,0 +1,35 @@
+package moviedata;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Diccionario de nombres de campos compartido por todos los {@link MovieData MovieData}. Los nombres se
+ * repiten en cada resultado ("Title", "Year", "imdbID"...), así que en lugar de guardar una copia por
+ * resultado todos apuntan a la misma instancia.
+ *
+ * Para que no crezca sin límite si llegara un Json con nombres arbitrarios, sólo se guardan nombres cortos
+ * y hasta una cantidad máxima; los demás se devuelven tal cual.
+ */
+public class KeyDictionary {
+
+    private static final int MAX_KEYS = 4096;
+    private static final int MAX_KEY_LENGTH = 32;
+    private static final ConcurrentHashMap<String, String> keys = new ConcurrentHashMap<>();
+
+    private KeyDictionary() {
+
+    }
+
+    /**
+     * @param key nombre de un campo
+     * @return la instancia compartida del nombre
+     */
+    public static String intern(String key) {
+
+        String shared = keys.get(key);
+        if (shared != null) return shared;
+        if (key.length() > MAX_KEY_LENGTH || keys.size() >= MAX_KEYS) return key;
+        shared = keys.putIfAbsent(key, key);
+        return shared == null ? key : shared;
+    }
+}
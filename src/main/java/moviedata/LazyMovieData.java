@@ -0,0 +1,363 @@
+package moviedata;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Implementación de {@link MovieData MovieData} que guarda el Json original de la respuesta, sin convertirlo.
+ * Al construirse recorre una sola vez los bytes de su nivel y anota dónde empieza y termina cada dato; los
+ * Strings se decodifican recién cuando alguien los lee ({@link #getValue getValue()}, {@link #getId getId()},
+ * al mostrarlo o escribirlo como Json) y los datos anidados (por ejemplo "Ratings") se indexan recién la
+ * primera vez que se los toca.
+ *
+ * Sirve para los detalles de una película, que casi siempre se guardan en la caché o se reenvían sin que
+ * nadie lea la mayoría de sus datos. Se muestra y se escribe igual que el {@link CompactMovieData
+ * CompactMovieData} equivalente: las listas como objetos con claves "1", "2"... y sin los datos null.
+ *
+ * Es inmutable y thread-safe (los hijos indexados se guardan de forma idempotente).
+ */
+public final class LazyMovieData implements MovieData {
+
+    private static final String ID = "imdbID";
+
+    private static final int STRING = 0, OBJECT = 1, ARRAY = 2, LITERAL = 3, NULL = 4;
+    /** Datos por campo en {@link #fields}: inicio y fin de la clave, inicio y fin del valor, tipo */
+    private static final int STRIDE = 5;
+
+    private final byte[] json;
+    private final String name;
+    private final boolean array;
+    private final int[] fields;
+    private final int count;
+    private final LazyMovieData[] children;
+    private volatile String id;
+    private volatile boolean idResolved = false;
+
+    /**
+     * @param json cuerpo de la respuesta, un objeto Json en UTF-8. No se copia, no hay que modificarlo después
+     * @param name nombre del objeto (por ejemplo "Detalles")
+     * @return los datos del objeto
+     * @throws JsonParseException si no es un objeto Json bien formado
+     */
+    public static LazyMovieData parse(byte[] json, String name) {
+
+        int start = skipWhitespace(json, 0);
+        if (start >= json.length || json[start] != '{')
+            throw new JsonParseException("Se esperaba un objeto Json");
+        int end = skipValue(json, start);
+        if (skipWhitespace(json, end) != json.length)
+            throw new JsonParseException("Hay datos después del objeto Json");
+        return new LazyMovieData(json, KeyDictionary.intern(name), start, false);
+    }
+
+    private LazyMovieData(byte[] json, String name, int start, boolean array) {
+
+        this.json = json;
+        this.name = name;
+        this.array = array;
+
+        // Una pasada por este nivel: los valores anidados se saltean sin indexarlos
+        int[] f = new int[STRIDE * 32];
+        int n = 0;
+        int pos = skipWhitespace(json, start + 1);
+        char close = array ? ']' : '}';
+        if (pos < json.length && json[pos] == close) {
+            pos++;
+        } else {
+            while (true) {
+                if (n * STRIDE == f.length)
+                    f = Arrays.copyOf(f, f.length * 2);
+                int base = n * STRIDE;
+                if (! array) {
+                    if (pos >= json.length || json[pos] != '"')
+                        throw error(pos, "Se esperaba el nombre de un dato");
+                    f[base] = pos + 1;
+                    pos = skipString(json, pos);
+                    f[base + 1] = pos - 1;
+                    pos = skipWhitespace(json, pos);
+                    if (pos >= json.length || json[pos] != ':')
+                        throw error(pos, "Se esperaba ':'");
+                    pos = skipWhitespace(json, pos + 1);
+                }
+                f[base + 2] = pos;
+                f[base + 4] = kind(json, pos);
+                pos = skipValue(json, pos);
+                f[base + 3] = pos;
+                n++;
+                pos = skipWhitespace(json, pos);
+                if (pos >= json.length)
+                    throw error(pos, "El Json está cortado");
+                if (json[pos] == close) break;
+                if (json[pos] != ',')
+                    throw error(pos, "Se esperaba ',' o '" + close + "'");
+                pos = skipWhitespace(json, pos + 1);
+            }
+        }
+        this.fields = f;
+        this.count = n;
+        this.children = new LazyMovieData[n];
+    }
+
+    public void render(Appendable out, int depth) throws IOException {
+
+        out.append(Indent.of(depth)).append(name).append(":\n");
+        String indent = Indent.of(depth + 1);
+        for (int i = 0; i < count; ++i) {
+            int kind = fields[i * STRIDE + 4];
+            if (kind == NULL) continue;
+            if (kind == OBJECT || kind == ARRAY)
+                child(i).render(out, depth + 1);
+            else
+                out.append(indent).append(key(i)).append(": ").append(value(i)).append('\n');
+        }
+    }
+
+    public void writeJson(JsonWriter out) throws IOException {
+
+        out.beginObject();
+        for (int i = 0; i < count; ++i) {
+            int kind = fields[i * STRIDE + 4];
+            if (kind == NULL) continue;
+            out.name(key(i));
+            if (kind == OBJECT || kind == ARRAY)
+                child(i).writeJson(out);
+            else
+                out.value(value(i));
+        }
+        out.endObject();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param key nombre de un dato simple de este nivel (por ejemplo "Title")
+     * @return su valor, o null si no hay un dato simple con ese nombre
+     */
+    @Override
+    public String getValue(String key) {
+
+        for (int i = 0; i < count; ++i) {
+            int kind = fields[i * STRIDE + 4];
+            if ((kind == STRING || kind == LITERAL) && keyEquals(i, key))
+                return value(i);
+        }
+        return null;
+    }
+
+    /**
+     * Busca el ID igual que {@link CompactMovieData CompactMovieData}: en orden, entre los datos simples de
+     * este nivel y dentro de los anidados
+     */
+    public String getId() {
+
+        if (! idResolved) {
+            String found = null;
+            for (int i = 0; i < count && found == null; ++i) {
+                int kind = fields[i * STRIDE + 4];
+                if (kind == OBJECT || kind == ARRAY)
+                    found = child(i).getId();
+                else if (kind != NULL && keyEquals(i, ID))
+                    found = value(i);
+            }
+            id = found;
+            idResolved = true;
+        }
+        return id;
+    }
+
+    /**
+     * @return tamaño del Json del que salió (toda la respuesta), en bytes
+     */
+    public int getByteSize() {
+        return json.length;
+    }
+
+    @Override
+    public String toString() {
+        return toStringIndented(0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (! (obj instanceof MovieData)) return false;
+        String id = getId();
+        if (id == null) return false;
+        return id.equals(((MovieData) obj).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        String id = getId();
+        return id == null ? System.identityHashCode(this) : id.hashCode();
+    }
+
+    private LazyMovieData child(int i) {
+
+        LazyMovieData c = children[i];
+        if (c == null) {
+            // Si dos hilos lo indexan a la vez, da igual cuál quede
+            c = new LazyMovieData(json, key(i), fields[i * STRIDE + 2], fields[i * STRIDE + 4] == ARRAY);
+            children[i] = c;
+        }
+        return c;
+    }
+
+    /**
+     * @return el nombre del dato: su clave, o su posición (desde 1) si este objeto es una lista
+     */
+    private String key(int i) {
+
+        if (array)
+            return Integer.toString(i + 1);
+        return KeyDictionary.intern(decodeString(json, fields[i * STRIDE], fields[i * STRIDE + 1]));
+    }
+
+    private boolean keyEquals(int i, String key) {
+
+        if (array) return false;
+        int start = fields[i * STRIDE], end = fields[i * STRIDE + 1];
+        if (end - start != key.length())
+            return indexOf(json, (byte) '\\', start, end) >= 0 && decodeString(json, start, end).equals(key);
+        for (int j = 0; j < key.length(); ++j)
+            if (json[start + j] != key.charAt(j))
+                return indexOf(json, (byte) '\\', start, end) >= 0 && decodeString(json, start, end).equals(key);
+        return true;
+    }
+
+    /**
+     * @return el valor de un dato simple: el String decodificado, o el texto tal cual si es un número o un
+     * booleano
+     */
+    private String value(int i) {
+
+        int start = fields[i * STRIDE + 2], end = fields[i * STRIDE + 3];
+        if (fields[i * STRIDE + 4] == STRING)
+            return decodeString(json, start + 1, end - 1);
+        return new String(json, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private static int kind(byte[] json, int pos) {
+
+        if (pos >= json.length)
+            throw error(pos, "El Json está cortado");
+        switch (json[pos]) {
+            case '"': return STRING;
+            case '{': return OBJECT;
+            case '[': return ARRAY;
+            case 'n': return NULL;
+            default: return LITERAL;
+        }
+    }
+
+    /**
+     * @return la posición siguiente al valor que empieza en pos
+     */
+    private static int skipValue(byte[] json, int pos) {
+
+        switch (kind(json, pos)) {
+            case STRING:
+                return skipString(json, pos);
+            case OBJECT:
+            case ARRAY:
+                // Sólo hace falta saber dónde termina: se cuentan los corchetes fuera de los Strings
+                int depth = 0;
+                for (int p = pos; p < json.length; ++p) {
+                    byte b = json[p];
+                    if (b == '"') {
+                        p = skipString(json, p) - 1;
+                    } else if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        if (--depth == 0) return p + 1;
+                    }
+                }
+                throw error(pos, "El Json está cortado");
+            default:
+                int p = pos;
+                while (p < json.length && json[p] != ',' && json[p] != '}' && json[p] != ']'
+                        && json[p] > ' ')
+                    ++p;
+                if (p == pos)
+                    throw error(pos, "Se esperaba un valor");
+                return p;
+        }
+    }
+
+    /**
+     * @param pos posición de las comillas que abren el String
+     * @return la posición siguiente a las comillas que lo cierran
+     */
+    private static int skipString(byte[] json, int pos) {
+
+        for (int p = pos + 1; p < json.length; ++p) {
+            if (json[p] == '\\') ++p;
+            else if (json[p] == '"') return p + 1;
+        }
+        throw error(pos, "String sin terminar");
+    }
+
+    private static int skipWhitespace(byte[] json, int pos) {
+        while (pos < json.length && (json[pos] == ' ' || json[pos] == '\n' || json[pos] == '\r' || json[pos] == '\t'))
+            ++pos;
+        return pos;
+    }
+
+    private static int indexOf(byte[] json, byte b, int start, int end) {
+        for (int p = start; p < end; ++p)
+            if (json[p] == b) return p;
+        return -1;
+    }
+
+    /**
+     * @param start primer byte del contenido del String (después de las comillas)
+     * @param end posición de las comillas que lo cierran
+     * @return el contenido, con los escapes resueltos
+     */
+    private static String decodeString(byte[] json, int start, int end) {
+
+        int backslash = indexOf(json, (byte) '\\', start, end);
+        if (backslash < 0)
+            return new String(json, start, end - start, StandardCharsets.UTF_8);
+
+        StringBuilder sb = new StringBuilder(end - start);
+        int from = start;
+        for (int p = backslash; p < end; ++p) {
+            if (json[p] != '\\') continue;
+            sb.append(new String(json, from, p - from, StandardCharsets.UTF_8));
+            if (p + 1 >= end)
+                throw error(p, "Escape inválido");
+            char c = (char) json[++p];
+            switch (c) {
+                case 'n': sb.append('\n'); break;
+                case 't': sb.append('\t'); break;
+                case 'r': sb.append('\r'); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'u':
+                    if (p + 4 >= end)
+                        throw error(p, "Escape inválido");
+                    try {
+                        sb.append((char) Integer.parseInt(new String(json, p + 1, 4, StandardCharsets.US_ASCII), 16));
+                    } catch (NumberFormatException e) {
+                        throw error(p, "Escape inválido");
+                    }
+                    p += 4;
+                    break;
+                default: sb.append(c); // '"', '\\', '/'
+            }
+            from = p + 1;
+        }
+        sb.append(new String(json, from, end - from, StandardCharsets.UTF_8));
+        return sb.toString();
+    }
+
+    private static JsonParseException error(int pos, String message) {
+        return new JsonParseException(message + " en la posición " + pos);
+    }
+}
@@ -1,5 +1,10 @@
 package moviedata;
 
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * MovieData representa un objeto que guarda datos sobre un metraje que la consola muestra al usuario.
  * Los resultados de las queries están en Json, pero no todos los datos retornados tienen por qué
@@ -17,6 +22,10 @@ package moviedata;
  *
  * En resumen, cada objeto MovieData representa un par nombre/valor donde el valor puede ser un String u otro
  * objeto MovieData.
+ *
+ * Para guardar muchos resultados ocupando menos memoria también hay implementaciones compactas que se
+ * muestran igual que el árbol equivalente: {@link SearchHit SearchHit} para resultados de búsqueda y
+ * {@link CompactMovieData CompactMovieData} para datos anidados.
  */
 public interface MovieData {
 
@@ -43,7 +52,50 @@ public interface MovieData {
      * @param depth Profundidad en el árbol, un nodo la aumenta en 1 para invocar el mismo método en sus hijos
      * @return Un string donde se ven los datos de la película, indentados según su profundidad en el árbol
      */
-    String toStringIndented(int depth);
+    default String toStringIndented(int depth) {
+
+        StringBuilder sb = new StringBuilder();
+        try {
+            render(sb, depth);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Un StringBuilder nunca lanza IOException
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Escribe el mismo texto que {@link #toStringIndented toStringIndented} directamente en un destino
+     * (un StringBuilder, un Writer, System.out...), sin construir Strings intermedios. Sirve para mostrar
+     * muchos resultados sin que el tiempo crezca más que linealmente con el tamaño del texto.
+     * @param out destino donde escribir
+     * @param depth Profundidad en el árbol, un nodo la aumenta en 1 para invocar el mismo método en sus hijos
+     * @throws IOException si falla la escritura en el destino
+     */
+    void render(Appendable out, int depth) throws IOException;
+
+    /**
+     * @return el nombre del dato (el título en el caso de un resultado de búsqueda)
+     */
+    String getName();
+
+    /**
+     * @param key nombre de un dato simple del primer nivel, con la clave de la API (por ejemplo "Title" o
+     * "imdbRating")
+     * @return su valor, o null si no hay un dato simple con ese nombre
+     */
+    default String getValue(String key) {
+        return null;
+    }
+
+    /**
+     * Escribe el valor del dato como Json: un String si es un dato simple, o un objeto con sus hijos si
+     * tiene datos anidados. El nombre no se escribe, lo escribe quien lo contiene (o nadie si es la raíz).
+     * Las listas de la respuesta original se escriben como objetos con claves "1", "2"..., que es como
+     * quedaron al construir el árbol.
+     * @param out destino donde escribir
+     * @throws IOException si falla la escritura en el destino
+     */
+    void writeJson(JsonWriter out) throws IOException;
 
     /**
      * Sobreescribe {@link Object#equals equals}, devuelve verdadero si el ID imdb de ambos objetos es el mismo
@@ -52,4 +104,12 @@ public interface MovieData {
      * @return true si ambos objetos son de tipo MovieData y contienen el mismo ID imdb
      */
     boolean equals(Object o);
+
+    /**
+     * Sobreescribe {@link Object#hashCode hashCode}, consistente con {@link #equals equals}: es el hash del
+     * ID imdb. Los objetos sin ID no son iguales a ningún otro, así que usan el hash de identidad.
+     * Sin esto un {@link java.util.HashSet HashSet} no podría detectar duplicados.
+     * @return el hash del ID imdb, o el hash de identidad si no tiene
+     */
+    int hashCode();
 }
@@ -1,14 +1,23 @@
 package moviedata;
 
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
  * Implementa la interfaz {@link MovieData MovieData}, representa un elemento que tiene otros elementos anidados
+ *
+ * El ID imdb se busca en el árbol la primera vez que se pide y queda guardado (se vuelve a buscar si se
+ * agrega un hijo). Se asume que los hijos ya están completos al agregarlos, como ocurre al construir el
+ * árbol a partir del Json.
  */
 public class MovieDataComposite implements MovieData {
 
     private final String name;
     private final ArrayList<MovieData> children;
+    private String id;
+    private boolean idResolved = false;
 
     public MovieDataComposite(String name) {
         children = new ArrayList<>();
@@ -21,20 +30,39 @@ public class MovieDataComposite implements MovieData {
      */
     public void addChild(MovieData c) {
         children.add(c);
+        idResolved = false;
     }
 
-    public String toStringIndented(int depth) {
-        String res = "";
-        for (int i = 0; i < depth; ++i)
-            res += "\t";
-        res += name + ":\n";
+    public void render(Appendable out, int depth) throws IOException {
+        out.append(Indent.of(depth)).append(name).append(":\n");
         for (MovieData v : children)
-            res += v.toStringIndented(depth + 1);
-        return res;
+            v.render(out, depth + 1);
+    }
+
+    public void writeJson(JsonWriter out) throws IOException {
+        out.beginObject();
+        for (MovieData v : children) {
+            out.name(v.getName());
+            v.writeJson(out);
+        }
+        out.endObject();
+    }
+
+    public String getName() {
+        return name;
     }
 
     public String getId() {
 
+        if (! idResolved) {
+            id = findId();
+            idResolved = true;
+        }
+        return id;
+    }
+
+    private String findId() {
+
         for (MovieData v : children) {
             String id = v.getId();
             if (id != null) return id;
@@ -54,4 +82,10 @@ public class MovieDataComposite implements MovieData {
         if (((MovieData) obj).getId() == null) return false;
         return getId().equals(((MovieData) obj).getId());
     }
+
+    @Override
+    public int hashCode() {
+        String id = getId();
+        return id == null ? System.identityHashCode(this) : id.hashCode();
+    }
 }
@@ -0,0 +1,64 @@
+package moviedata;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Colección de {@link MovieData MovieData} indexada por ID imdb, que mantiene el orden de inserción y descarta
+ * duplicados (se queda con el primero). Agregar o buscar un elemento cuesta tiempo constante, así que sirve
+ * para combinar los resultados de muchas búsquedas.
+ *
+ * Los elementos sin ID no se pueden comparar, así que se agregan siempre.
+ */
+public class MovieDataIndex {
+
+    // La clave es el ID, o un objeto nuevo para los elementos sin ID
+    private final LinkedHashMap<Object, MovieData> entries = new LinkedHashMap<>();
+
+    /**
+     * @param m elemento a agregar
+     * @return true si se agregó, false si ya había uno con el mismo ID
+     */
+    public boolean add(MovieData m) {
+
+        String id = m.getId();
+        return entries.putIfAbsent(id == null ? new Object() : id, m) == null;
+    }
+
+    /**
+     * @param ms elementos a agregar, en orden
+     * @return cantidad de elementos agregados (sin contar los duplicados)
+     */
+    public int addAll(Iterable<? extends MovieData> ms) {
+
+        int added = 0;
+        for (MovieData m : ms)
+            if (add(m)) added++;
+        return added;
+    }
+
+    /**
+     * @param id ID imdb
+     * @return el elemento con ese ID, o null si no hay ninguno
+     */
+    public MovieData get(String id) {
+        return entries.get(id);
+    }
+
+    public boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<MovieData> values() {
+        return new ArrayList<>(entries.values());
+    }
+
+    public MovieData[] toArray() {
+        return entries.values().toArray(new MovieData[0]);
+    }
+}
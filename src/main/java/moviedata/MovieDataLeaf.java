@@ -1,5 +1,9 @@
 package moviedata;
 
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
 /**
  * Implementa la interfaz {@link MovieData MovieData}, representa un elemento simple (nodo hoja)
  */
@@ -7,25 +11,29 @@ public class MovieDataLeaf implements MovieData {
 
     private final String name;
     private final String value;
+    private final String id;
 
     public MovieDataLeaf(String name, String value) {
 
         this.name = name;
         this.value = value;
+        this.id = name.equals("imdbID") ? value : null;
     }
 
-    public String toStringIndented(int depth) {
-        String res = "";
-        for (int i = 0; i < depth; ++i)
-            res += "\t";
-        res += name + ": " + value + "\n";
-        return res;
+    public void render(Appendable out, int depth) throws IOException {
+        out.append(Indent.of(depth)).append(name).append(": ").append(value).append('\n');
     }
 
-    public String getId() {
+    public void writeJson(JsonWriter out) throws IOException {
+        out.value(value);
+    }
+
+    public String getName() {
+        return name;
+    }
 
-        if (name.equals("imdbID")) return value;
-        return null;
+    public String getId() {
+        return id;
     }
 
     public String toString() {
@@ -39,4 +47,9 @@ public class MovieDataLeaf implements MovieData {
         if (((MovieData) obj).getId() == null) return false;
         return getId().equals(((MovieData) obj).getId());
     }
+
+    @Override
+    public int hashCode() {
+        return id == null ? System.identityHashCode(this) : id.hashCode();
+    }
 }
@@ -0,0 +1,110 @@
+package moviedata;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Implementación compacta de {@link MovieData MovieData} para un resultado de búsqueda, que siempre tiene
+ * los mismos tres datos (año, tipo e ID imdb). Guarda sólo los valores, en lugar de un
+ * {@link MovieDataComposite MovieDataComposite} con una lista y tres {@link MovieDataLeaf MovieDataLeaf}.
+ * Se muestra igual que lo haría el árbol equivalente.
+ */
+public final class SearchHit implements MovieData {
+
+    private static final String YEAR = "Año";
+    private static final String TYPE = "Tipo";
+    private static final String ID = "imdbID";
+
+    private final String title;
+    private final String year;
+    private final String type;
+    private final String id;
+
+    /**
+     * @param title título, se muestra entre comillas
+     * @param year año (o rango de años si es una serie)
+     * @param type tipo de metraje
+     * @param id ID imdb
+     */
+    public SearchHit(String title, String year, String type, String id) {
+        this.title = title;
+        this.year = year;
+        this.type = type;
+        this.id = id;
+    }
+
+    public void render(Appendable out, int depth) throws IOException {
+
+        String indent = Indent.of(depth + 1);
+        out.append(Indent.of(depth)).append('"').append(title).append("\":\n");
+        out.append(indent).append(YEAR).append(": ").append(year).append('\n');
+        out.append(indent).append(TYPE).append(": ").append(type).append('\n');
+        out.append(indent).append(ID).append(": ").append(id).append('\n');
+    }
+
+    /**
+     * Escribe el resultado con las claves originales de la API (Title, Year, Type, imdbID)
+     */
+    public void writeJson(JsonWriter out) throws IOException {
+
+        out.beginObject();
+        out.name("Title").value(title);
+        out.name("Year").value(year);
+        out.name("Type").value(type);
+        out.name("imdbID").value(id);
+        out.endObject();
+    }
+
+    /**
+     * @return el título
+     */
+    public String getName() {
+        return title;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String getValue(String key) {
+
+        switch (key) {
+            case "Title": return title;
+            case "Year": return year;
+            case "Type": return type;
+            case ID: return id;
+            default: return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toStringIndented(0);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (! (obj instanceof MovieData)) return false;
+        if (id == null) return false;
+        return id.equals(((MovieData) obj).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        return id == null ? System.identityHashCode(this) : id.hashCode();
+    }
+}
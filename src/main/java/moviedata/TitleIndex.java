@@ -0,0 +1,375 @@
+package moviedata;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido de los títulos de todos los metrajes vistos (en búsquedas o detalles), para buscar sin
+ * consultar la API: al instante, sin conexión y tolerando errores de tipeo.
+ *
+ * Los títulos se normalizan (minúsculas, sin tildes, sólo letras y números) y se parten en palabras. Cada
+ * palabra tiene su lista de metrajes, un array de ints ordenado. Una búsqueda encuentra los metrajes que
+ * tienen todas las palabras buscadas, o palabras que empiezan con ellas ("star wa" encuentra "Star Wars").
+ * Si alguna palabra buscada no aparece en ningún título se buscan las parecidas: cada palabra conocida está
+ * indexada por sus trigramas (grupos de tres letras), así se obtienen rápido las que comparten varios con la
+ * buscada, y de esas se quedan las que están a una o dos letras de distancia ("interstelar" encuentra
+ * "Interstellar").
+ *
+ * Los resultados son {@link SearchHit SearchHit}, como los de una búsqueda en la API. Es seguro usarlo desde
+ * varios hilos.
+ */
+public class TitleIndex {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    /** Palabras más cortas que esto no se buscan aproximadas, cualquier error las convierte en otra */
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private final int maxEntries;
+    private final List<SearchHit> docs = new ArrayList<>();
+    private int[] startYears = new int[16];
+    private final Map<String, Integer> docById = new HashMap<>();
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+    private final List<Postings> vocabulary = new ArrayList<>();
+    private final Map<String, Postings> trigrams = new HashMap<>();
+
+    private long queries = 0;
+    private long fuzzyQueries = 0;
+
+    /**
+     * Lista ordenada de ints sin repetidos (documentos de una palabra, o palabras de un trigrama)
+     */
+    private static final class Postings {
+
+        final String word;
+        final int id;
+        int[] items = new int[2];
+        int size = 0;
+
+        Postings(String word, int id) {
+            this.word = word;
+            this.id = id;
+        }
+
+        void add(int item) {
+
+            // Se agregan en orden creciente, así que un repetido sólo puede ser el último
+            if (size > 0 && items[size - 1] == item) return;
+            if (size == items.length)
+                items = Arrays.copyOf(items, size * 2);
+            items[size++] = item;
+        }
+    }
+
+    /**
+     * @param maxEntries cantidad máxima de metrajes a indexar, los que lleguen después se ignoran
+     */
+    public TitleIndex(int maxEntries) {
+        // Los números de documento tienen que entrar en 28 bits, ver search()
+        this.maxEntries = Math.min(maxEntries, 1 << 28);
+    }
+
+    /**
+     * Indexa un metraje, si tiene título e ID y no estaba indexado
+     * @param m un resultado de búsqueda ({@link SearchHit SearchHit}) o los detalles de un metraje (con
+     * Title, Year y Type, ver {@link MovieData#getValue MovieData.getValue()})
+     * @return true si se agregó
+     */
+    public boolean add(MovieData m) {
+
+        SearchHit hit;
+        if (m instanceof SearchHit) {
+            hit = (SearchHit) m;
+        } else {
+            hit = new SearchHit(m.getValue("Title"), m.getValue("Year"), m.getValue("Type"), m.getId());
+        }
+        if (hit.getId() == null || hit.getTitle() == null) return false;
+
+        synchronized (this) {
+            if (docs.size() >= maxEntries || docById.containsKey(hit.getId())) return false;
+            int doc = docs.size();
+            docs.add(hit);
+            docById.put(hit.getId(), doc);
+            if (doc == startYears.length)
+                startYears = Arrays.copyOf(startYears, doc * 2);
+            startYears[doc] = startYear(hit.getYear());
+            for (String word : tokenize(hit.getTitle()))
+                posting(word).add(doc);
+            return true;
+        }
+    }
+
+    /**
+     * @param ms metrajes a indexar
+     * @return cantidad de metrajes agregados
+     */
+    public int addAll(Iterable<? extends MovieData> ms) {
+
+        int added = 0;
+        for (MovieData m : ms)
+            if (add(m)) added++;
+        return added;
+    }
+
+    /**
+     * Busca metrajes por título. Primero los que tienen todas las palabras (o palabras que empiezan con
+     * ellas), en el orden en que se indexaron; después los que tienen palabras parecidas, de más a menos
+     * parecidos.
+     * @param title título o parte del título
+     * @param type tipo de metraje, o null para cualquiera
+     * @param fromYear año mínimo (inclusive), o null para no filtrar por año
+     * @param toYear año máximo (inclusive), o null para no filtrar por año
+     * @return los metrajes encontrados, vacío si no hay ninguno
+     */
+    public synchronized List<SearchHit> search(String title, String type, Integer fromYear, Integer toYear) {
+
+        queries++;
+        Set<String> query = tokenize(title);
+        if (query.isEmpty()) return new ArrayList<>();
+
+        // Cada entrada es doc << 2 | distancia, así ordenar por entrada ordena por documento
+        int[] matches = null;
+        boolean fuzzy = false;
+        for (String word : query) {
+            int[] found = prefixMatches(word);
+            if (found.length == 0) {
+                found = fuzzyMatches(word);
+                fuzzy = true;
+            }
+            matches = matches == null ? found : intersect(matches, found);
+            if (matches.length == 0) break;
+        }
+        if (fuzzy) fuzzyQueries++;
+
+        // distancia << 28 | doc, así ordenar por entrada ordena por distancia y después por documento
+        int[] ranked = new int[matches.length];
+        int n = 0;
+        for (int entry : matches) {
+            int doc = entry >>> 2;
+            SearchHit hit = docs.get(doc);
+            if (type != null && ! type.equalsIgnoreCase(hit.getType())) continue;
+            if (fromYear != null && startYears[doc] < fromYear) continue;
+            if (toYear != null && startYears[doc] > toYear) continue;
+            ranked[n++] = (entry & 3) << 28 | doc;
+        }
+        if (fuzzy) Arrays.sort(ranked, 0, n);
+
+        List<SearchHit> results = new ArrayList<>(n);
+        for (int i = 0; i < n; ++i)
+            results.add(docs.get(ranked[i] & 0x0fffffff));
+        return results;
+    }
+
+    public synchronized int size() {
+        return docs.size();
+    }
+
+    public synchronized int getWordCount() {
+        return vocabulary.size();
+    }
+
+    public synchronized long getQueries() {
+        return queries;
+    }
+
+    /**
+     * @return cantidad de búsquedas que tuvieron que buscar palabras parecidas
+     */
+    public synchronized long getFuzzyQueries() {
+        return fuzzyQueries;
+    }
+
+    /**
+     * @return documentos de todas las palabras que empiezan con word (distancia 0), ordenados
+     */
+    private int[] prefixMatches(String word) {
+
+        Map<String, Postings> range = words.subMap(word, true, word + Character.MAX_VALUE, false);
+        if (range.size() == 1)
+            return encode(range.values().iterator().next(), 0);
+        int total = 0;
+        for (Postings p : range.values())
+            total += p.size;
+        int[] out = new int[total];
+        int n = 0;
+        for (Postings p : range.values())
+            for (int i = 0; i < p.size; ++i)
+                out[n++] = p.items[i] << 2;
+        return dedup(out, n);
+    }
+
+    /**
+     * @return documentos de todas las palabras a una o dos letras de distancia de word, ordenados
+     */
+    private int[] fuzzyMatches(String word) {
+
+        if (word.length() < MIN_FUZZY_LENGTH) return new int[0];
+        int maxEdits = word.length() < 8 ? 1 : 2;
+
+        // Cuántos trigramas comparte cada palabra conocida con la buscada
+        Map<Integer, Integer> shared = new HashMap<>();
+        List<String> grams = trigramsOf(word);
+        for (String gram : grams) {
+            Postings p = trigrams.get(gram);
+            if (p == null) continue;
+            for (int i = 0; i < p.size; ++i)
+                shared.merge(p.items[i], 1, Integer::sum);
+        }
+        // Cada error rompe a lo sumo cuatro trigramas (tres si es una letra cambiada, cuatro si son dos
+        // letras transpuestas)
+        int minShared = Math.max(1, grams.size() - 4 * maxEdits);
+
+        int[] out = new int[0];
+        int n = 0;
+        for (Map.Entry<Integer, Integer> e : shared.entrySet()) {
+            if (e.getValue() < minShared) continue;
+            Postings candidate = vocabulary.get(e.getKey());
+            int distance = distance(word, candidate.word, maxEdits);
+            if (distance > maxEdits) continue;
+            if (n + candidate.size > out.length)
+                out = Arrays.copyOf(out, Math.max(out.length * 2, n + candidate.size));
+            for (int i = 0; i < candidate.size; ++i)
+                out[n++] = candidate.items[i] << 2 | distance;
+        }
+        return dedup(out, n);
+    }
+
+    private static int[] encode(Postings p, int distance) {
+
+        int[] out = new int[p.size];
+        for (int i = 0; i < p.size; ++i)
+            out[i] = p.items[i] << 2 | distance;
+        return out;
+    }
+
+    /**
+     * Ordena y deja una entrada por documento, la de menor distancia
+     */
+    private static int[] dedup(int[] entries, int n) {
+
+        Arrays.sort(entries, 0, n);
+        int size = 0;
+        for (int i = 0; i < n; ++i)
+            if (size == 0 || entries[size - 1] >>> 2 != entries[i] >>> 2)
+                entries[size++] = entries[i];
+        return size == entries.length ? entries : Arrays.copyOf(entries, size);
+    }
+
+    /**
+     * Documentos que están en las dos listas, sumando las distancias (hasta 3)
+     */
+    private static int[] intersect(int[] a, int[] b) {
+
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            int docA = a[i] >>> 2, docB = b[j] >>> 2;
+            if (docA < docB) {
+                i++;
+            } else if (docA > docB) {
+                j++;
+            } else {
+                out[n++] = docA << 2 | Math.min(3, (a[i] & 3) + (b[j] & 3));
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private Postings posting(String word) {
+
+        Postings p = words.get(word);
+        if (p == null) {
+            p = new Postings(word, vocabulary.size());
+            words.put(word, p);
+            vocabulary.add(p);
+            for (String gram : trigramsOf(word))
+                trigrams.computeIfAbsent(gram, g -> new Postings(g, -1)).add(p.id);
+        }
+        return p;
+    }
+
+    /**
+     * @return los trigramas de la palabra, con marcas de inicio y fin para que los extremos pesen más
+     */
+    private static List<String> trigramsOf(String word) {
+
+        String padded = "^" + word + "$";
+        List<String> grams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); ++i)
+            grams.add(padded.substring(i, i + 3));
+        return grams;
+    }
+
+    /**
+     * Distancia de edición (inserciones, borrados, reemplazos y letras transpuestas), cortando apenas
+     * supera max
+     * @return la distancia, o max + 1 si es mayor a max
+     */
+    static int distance(String a, String b, int max) {
+
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] prev2 = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); ++j)
+            prev[j] = j;
+        for (int i = 1; i <= a.length(); ++i) {
+            cur[0] = i;
+            int rowMin = cur[0];
+            for (int j = 1; j <= b.length(); ++j) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1))
+                    d = Math.min(d, prev2[j - 2] + 1);
+                cur[j] = d;
+                rowMin = Math.min(rowMin, d);
+            }
+            if (rowMin > max) return max + 1;
+            int[] tmp = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return Math.min(prev[b.length()], max + 1);
+    }
+
+    /**
+     * @return las palabras del texto normalizadas (minúsculas, sin tildes), sin repetir
+     */
+    static Set<String> tokenize(String text) {
+
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) return tokens;
+        String normalized = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(normalized))
+            if (! token.isEmpty()) tokens.add(token);
+        return tokens;
+    }
+
+    /**
+     * @return el primer año de un año o rango de años ("2008–2013"), o 0 si no tiene
+     */
+    private static int startYear(String year) {
+
+        if (year == null || year.length() < 4) return 0;
+        int value = 0;
+        for (int i = 0; i < 4; ++i) {
+            char c = year.charAt(i);
+            if (c < '0' || c > '9') return 0;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,302 @@
+package omdb;
+
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Decide cuándo se envía cada petición a la API, para sacar el máximo de peticiones por segundo sin que la
+ * API empiece a rechazarlas. Antes de enviar una petición:
+ *  - se descuenta de la cuota diaria ({@link QuotaCounter QuotaCounter}); si se agotó, se rechaza o se
+ *    demora hasta el día siguiente según {@link ClientOptions.QuotaPolicy QuotaPolicy}
+ *  - se espera a que el {@link TokenBucket TokenBucket} la deje pasar (tasa máxima)
+ *  - se espera a que haya lugar en el {@link ConcurrencyLimiter ConcurrencyLimiter} (peticiones en curso)
+ *
+ * El límite de peticiones en curso se adapta según la respuesta de la API (AIMD): sube de a poco mientras
+ * todo anda bien y se reduce a la mitad cuando la API indica que está saturada (429 o 503) o no responde a
+ * tiempo. Las respuestas 429 y 5xx y los timeouts se reintentan con espera exponencial con jitter.
+ *
+ * Si la petición se cancela antes de enviarse (mientras espera su ficha o su lugar), se devuelven la ficha
+ * y la cuota que había descontado.
+ *
+ * Nada de esto bloquea hilos, las esperas se programan en un {@link ScheduledExecutorService}.
+ */
+public class AdmissionController {
+
+    private final ConcurrencyLimiter limiter;
+    private final TokenBucket bucket;
+    private final QuotaCounter quota;
+    private final ClientOptions.QuotaPolicy quotaPolicy;
+    private final ScheduledExecutorService scheduler;
+    private final int minConcurrent;
+    private final int maxConcurrent;
+    private final int maxRetries;
+    private final long retryBaseDelayMillis;
+    private final long retryMaxDelayMillis;
+
+    private double limit;
+    private long lastDecrease = 0;
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong refused = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+
+    /**
+     * @param options opciones del cliente, de donde se toman los límites
+     * @param scheduler executor donde se programan las esperas
+     */
+    public AdmissionController(ClientOptions options, ScheduledExecutorService scheduler) {
+        this.maxConcurrent = options.getMaxConcurrentRequests();
+        this.minConcurrent = Math.min(options.getMinConcurrentRequests(), maxConcurrent);
+        this.limit = maxConcurrent;
+        this.limiter = new ConcurrencyLimiter(maxConcurrent);
+        this.bucket = options.getRateLimitPerSecond() > 0
+                ? new TokenBucket(options.getRateLimitPerSecond(), options.getRateLimitBurst()) : null;
+        this.quota = new QuotaCounter(options.getDailyQuota());
+        this.quotaPolicy = options.getQuotaPolicy();
+        this.scheduler = scheduler;
+        this.maxRetries = options.getMaxRetries();
+        this.retryBaseDelayMillis = options.getRetryBaseDelay().toMillis();
+        this.retryMaxDelayMillis = options.getRetryMaxDelay().toMillis();
+    }
+
+    /**
+     * Envía una petición cuando lo permiten los límites, reintentándola si hace falta.
+     * @param send función que envía la petición (se llama una vez por intento)
+     * @return un future con la respuesta. Si se agotaron los reintentos por respuestas de error se completa
+     * con la última respuesta, para que quien llama pueda leer el error que informó la API. Cancelarlo
+     * cancela la petición en curso o los intentos pendientes.
+     */
+    public <T> CompletableFuture<HttpResponse<T>> submit(Supplier<CompletableFuture<HttpResponse<T>>> send) {
+
+        CompletableFuture<HttpResponse<T>> result = new CompletableFuture<>();
+        attempt(send, result, 0);
+        return result;
+    }
+
+    private <T> void attempt(Supplier<CompletableFuture<HttpResponse<T>>> send,
+                             CompletableFuture<HttpResponse<T>> result, int attempt) {
+
+        if (result.isDone()) return;
+
+        if (! quota.tryAcquire()) {
+            if (quotaPolicy == ClientOptions.QuotaPolicy.REFUSE) {
+                refused.incrementAndGet();
+                result.completeExceptionally(new QuotaExceededException(0,
+                        "Se alcanzó la cuota diaria de " + quota.getDailyLimit() + " peticiones"));
+            } else {
+                deferred.incrementAndGet();
+                schedule(() -> attempt(send, result, attempt), quota.millisUntilReset(), result);
+            }
+            return;
+        }
+
+        long wait = bucket == null ? 0 : bucket.reserve();
+
+        // Lo que gana la carrera entre el envío y la cancelación decide si se gastaron la cuota y la ficha
+        AtomicBoolean settled = new AtomicBoolean();
+        Supplier<CompletableFuture<HttpResponse<T>>> counted = () -> settled.compareAndSet(false, true)
+                ? send.get() : CompletableFuture.failedFuture(new CancellationException());
+        result.whenComplete((v, e) -> {
+            if (result.isCancelled() && settled.compareAndSet(false, true)) {
+                quota.release();
+                if (bucket != null) bucket.refund();
+            }
+        });
+
+        if (wait > 0)
+            schedule(() -> dispatch(send, counted, result, attempt), TimeUnit.NANOSECONDS.toMillis(wait), result);
+        else
+            dispatch(send, counted, result, attempt);
+    }
+
+    /**
+     * @param send función que envía la petición, para los reintentos
+     * @param counted la misma, pero que no envía nada si ya se devolvieron la cuota y la ficha de este intento
+     */
+    private <T> void dispatch(Supplier<CompletableFuture<HttpResponse<T>>> send,
+                              Supplier<CompletableFuture<HttpResponse<T>>> counted,
+                              CompletableFuture<HttpResponse<T>> result, int attempt) {
+
+        if (result.isDone()) return;
+
+        sent.incrementAndGet();
+        CompletableFuture<HttpResponse<T>> f = limiter.submit(counted);
+        result.whenComplete((v, e) -> {
+            if (result.isCancelled())
+                f.cancel(true);
+        });
+        f.whenComplete((response, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                if (cause instanceof HttpTimeoutException) {
+                    onThrottle();
+                    retryOrFail(send, result, attempt, null, cause);
+                } else {
+                    result.completeExceptionally(cause);
+                }
+                return;
+            }
+
+            int status = response.statusCode();
+            if (status == 429 || status == 503)
+                onThrottle();
+            else if (status < 500)
+                onSuccess();
+
+            if (status == 429 || status >= 500)
+                retryOrFail(send, result, attempt, response, null);
+            else
+                result.complete(response);
+        });
+    }
+
+    private <T> void retryOrFail(Supplier<CompletableFuture<HttpResponse<T>>> send,
+                                 CompletableFuture<HttpResponse<T>> result, int attempt,
+                                 HttpResponse<T> response, Throwable error) {
+
+        if (attempt >= maxRetries) {
+            if (response != null)
+                result.complete(response);
+            else
+                result.completeExceptionally(error);
+            return;
+        }
+        retries.incrementAndGet();
+        schedule(() -> attempt(send, result, attempt + 1), backoff(attempt, response), result);
+    }
+
+    /**
+     * Espera exponencial con jitter completo: un valor al azar entre 0 y base * 2^intento (con un tope).
+     * Si la API indicó cuánto esperar (cabecera Retry-After) se espera al menos eso.
+     * @param attempt número de intento que falló (empezando de 0)
+     * @param response respuesta que falló, o null si no hubo
+     * @return milisegundos a esperar
+     */
+    private long backoff(int attempt, HttpResponse<?> response) {
+
+        long ceiling = Math.min(retryMaxDelayMillis, retryBaseDelayMillis << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (response != null) {
+            String retryAfter = response.headers().firstValue("Retry-After").orElse("");
+            if (retryAfter.matches("\\d{1,6}"))
+                delay = Math.max(delay, Math.min(retryMaxDelayMillis, Long.parseLong(retryAfter) * 1000));
+        }
+        return delay;
+    }
+
+    private void schedule(Runnable task, long delayMillis, CompletableFuture<?> result) {
+
+        try {
+            scheduler.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new OmdbException(0, "El cliente está cerrado"));
+        }
+    }
+
+    /**
+     * Aumento aditivo: el límite sube en 1 cada vez que se completa una "ventana" de peticiones exitosas
+     */
+    private void onSuccess() {
+
+        int newLimit;
+        synchronized (this) {
+            if (limit >= maxConcurrent) return;
+            limit = Math.min(maxConcurrent, limit + 1 / limit);
+            newLimit = (int) limit;
+        }
+        if (newLimit != limiter.getMaxConcurrent())
+            limiter.setMaxConcurrent(newLimit);
+    }
+
+    /**
+     * Disminución multiplicativa: el límite se reduce a la mitad. Como varias peticiones en curso pueden
+     * detectar la misma saturación, se reduce como mucho una vez por cada espera base de reintento.
+     */
+    private void onThrottle() {
+
+        throttled.incrementAndGet();
+        int newLimit;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now - lastDecrease < retryBaseDelayMillis) return;
+            lastDecrease = now;
+            limit = Math.max(minConcurrent, limit / 2);
+            newLimit = (int) limit;
+        }
+        limiter.setMaxConcurrent(newLimit);
+    }
+
+    /**
+     * Avisa que la API informó que se agotó la cuota, las próximas peticiones del día se rechazan o demoran
+     */
+    public void quotaExhausted() {
+        quota.exhaust();
+    }
+
+    private static Throwable unwrap(Throwable t) {
+
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null)
+            t = t.getCause();
+        return t;
+    }
+
+    /**
+     * @return límite actual de peticiones en curso
+     */
+    public int getConcurrencyLimit() {
+        return limiter.getMaxConcurrent();
+    }
+
+    public int getInFlight() {
+        return limiter.getInFlight();
+    }
+
+    /**
+     * @return peticiones enviadas (cada reintento cuenta)
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /**
+     * @return respuestas que indicaron saturación (429, 503 o timeout)
+     */
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    /**
+     * @return peticiones rechazadas por haberse agotado la cuota diaria
+     */
+    public long getRefused() {
+        return refused.get();
+    }
+
+    /**
+     * @return peticiones demoradas hasta el día siguiente por haberse agotado la cuota diaria
+     */
+    public long getDeferred() {
+        return deferred.get();
+    }
+
+    public int getQuotaUsed() {
+        return quota.getUsed();
+    }
+}
@@ -0,0 +1,268 @@
+package omdb;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Descomprime los cuerpos de las respuestas (gzip o deflate, según Content-Encoding) y los entrega al parser
+ * de Json sin pasar por un String.
+ *
+ * Como el cuerpo comprimido ya está entero en memoria, se descomprime de una sola vez en un array del tamaño
+ * justo (gzip lo trae en sus últimos bytes), sin buffers intermedios. Los {@link Inflater Inflater}, que son
+ * caros de crear porque reservan memoria nativa, se reutilizan.
+ */
+final class BodyDecoder {
+
+    /** Valor para la cabecera Accept-Encoding */
+    static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    private static final int POOL_SIZE = 16;
+    /** Deflate no comprime más que esto, un tamaño anunciado mayor no es creíble */
+    private static final int MAX_RATIO = 1032;
+    private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+    private static final BlockingQueue<Inflater> rawInflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> zlibInflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private BodyDecoder() {
+
+    }
+
+    /**
+     * @param body cuerpo de la respuesta, tal como llegó
+     * @param contentEncoding valor de la cabecera Content-Encoding, o null si no la tiene
+     * @return el cuerpo descomprimido (el mismo array si no estaba comprimido)
+     * @throws IOException si el cuerpo está corrupto o la codificación no es soportada
+     */
+    static byte[] decode(byte[] body, String contentEncoding) throws IOException {
+
+        if (contentEncoding == null || body.length == 0)
+            return body;
+        switch (contentEncoding.trim().toLowerCase(Locale.ROOT)) {
+            case "":
+            case "identity":
+                return body;
+            case "gzip":
+            case "x-gzip":
+                return gunzip(body);
+            case "deflate":
+                return inflate(body);
+            default:
+                throw new IOException("Codificación no soportada: " + contentEncoding);
+        }
+    }
+
+    /**
+     * @param body cuerpo Json en UTF-8
+     * @return un Reader que decodifica el UTF-8 a medida que el parser lo lee, sin copiar el cuerpo
+     */
+    static Reader reader(byte[] body) {
+        return new Utf8Reader(body);
+    }
+
+    /**
+     * @param body cuerpo de la respuesta, ya descomprimido
+     * @param ascii texto a buscar, sólo caracteres ASCII
+     * @return true si el cuerpo contiene el texto
+     */
+    static boolean contains(byte[] body, String ascii) {
+
+        int n = ascii.length();
+        outer:
+        for (int i = 0; i + n <= body.length; ++i) {
+            for (int j = 0; j < n; ++j)
+                if (body[i + j] != ascii.charAt(j)) continue outer;
+            return true;
+        }
+        return false;
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+
+        if (body.length < 18 || (body[0] & 0xff) != 0x1f || (body[1] & 0xff) != 0x8b || body[2] != 8)
+            throw new IOException("El cuerpo no es un gzip válido");
+        int flags = body[3];
+        int pos = 10;
+        if ((flags & FEXTRA) != 0)
+            pos += 2 + ((body[pos] & 0xff) | (body[pos + 1] & 0xff) << 8);
+        if ((flags & FNAME) != 0)
+            pos = skipZeroTerminated(body, pos);
+        if ((flags & FCOMMENT) != 0)
+            pos = skipZeroTerminated(body, pos);
+        if ((flags & FHCRC) != 0)
+            pos += 2;
+        if (pos > body.length - 8)
+            throw new IOException("El cuerpo no es un gzip válido");
+
+        long crc = readInt(body, body.length - 8);
+        long size = readInt(body, body.length - 4);
+        // El tamaño es módulo 2^32, si no es creíble se descomprime igual sin saberlo de antemano
+        int expected = size <= (long) body.length * MAX_RATIO ? (int) size : body.length * 4;
+
+        Inflater inflater = borrow(rawInflaters, true);
+        byte[] out;
+        try {
+            inflater.setInput(body, pos, body.length - 8 - pos);
+            out = inflateFully(inflater, expected);
+        } finally {
+            release(rawInflaters, inflater);
+        }
+        int length = out.length;
+
+        CRC32 check = new CRC32();
+        check.update(out, 0, length);
+        if (check.getValue() != crc || (length & 0xffffffffL) != size)
+            throw new IOException("El gzip está corrupto");
+        return out;
+    }
+
+    private static byte[] inflate(byte[] body) throws IOException {
+
+        // "deflate" debería venir con cabecera zlib, pero algunos servidores mandan el deflate pelado
+        boolean zlib = body.length >= 2 && (body[0] & 0x0f) == 8 && ((body[0] & 0xff) << 8 | (body[1] & 0xff)) % 31 == 0;
+        BlockingQueue<Inflater> pool = zlib ? zlibInflaters : rawInflaters;
+        Inflater inflater = borrow(pool, ! zlib);
+        try {
+            inflater.setInput(body);
+            return inflateFully(inflater, body.length * 4);
+        } finally {
+            release(pool, inflater);
+        }
+    }
+
+    /**
+     * Descomprime toda la entrada del Inflater
+     * @param expectedSize tamaño esperado del resultado. Si es exacto no se hace ninguna copia
+     * @return el resultado, en un array de su tamaño justo
+     * @throws IOException si la entrada está corrupta o cortada
+     */
+    private static byte[] inflateFully(Inflater inflater, int expectedSize) throws IOException {
+
+        byte[] out = new byte[Math.max(expectedSize, 1)];
+        int length = 0;
+        try {
+            while (! inflater.finished()) {
+                if (length == out.length) {
+                    // Puede que ya no quede nada y sólo falte leer el final del stream: se prueba con un
+                    // byte antes de agrandar
+                    byte[] probe = new byte[1];
+                    if (inflater.inflate(probe) == 0) {
+                        if (inflater.finished()) break;
+                        throw new IOException("El cuerpo comprimido está truncado");
+                    }
+                    out = Arrays.copyOf(out, out.length * 2);
+                    out[length++] = probe[0];
+                    continue;
+                }
+                int n = inflater.inflate(out, length, out.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new IOException("El cuerpo comprimido está truncado");
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("El cuerpo comprimido está corrupto", e);
+        }
+        return length == out.length ? out : Arrays.copyOf(out, length);
+    }
+
+    private static int skipZeroTerminated(byte[] body, int pos) {
+        while (pos < body.length && body[pos] != 0) ++pos;
+        return pos + 1;
+    }
+
+    private static long readInt(byte[] b, int pos) {
+        return (b[pos] & 0xffL) | (b[pos + 1] & 0xffL) << 8 | (b[pos + 2] & 0xffL) << 16 | (b[pos + 3] & 0xffL) << 24;
+    }
+
+    private static Inflater borrow(BlockingQueue<Inflater> pool, boolean nowrap) {
+        Inflater inflater = pool.poll();
+        return inflater != null ? inflater : new Inflater(nowrap);
+    }
+
+    private static void release(BlockingQueue<Inflater> pool, Inflater inflater) {
+        inflater.reset();
+        if (! pool.offer(inflater))
+            inflater.end();
+    }
+
+    /**
+     * Reader de UTF-8 sobre un array de bytes. A diferencia de InputStreamReader no tiene buffers propios:
+     * decodifica directamente al buffer del que lee (el del JsonReader). Las secuencias inválidas se
+     * reemplazan por U+FFFD.
+     */
+    private static final class Utf8Reader extends Reader {
+
+        private final byte[] bytes;
+        private int pos = 0;
+        private char pendingLowSurrogate = 0;
+
+        Utf8Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+
+            if (len == 0) return 0;
+            int n = 0;
+            if (pendingLowSurrogate != 0) {
+                cbuf[off + n++] = pendingLowSurrogate;
+                pendingLowSurrogate = 0;
+            }
+            byte[] b = bytes;
+            while (n < len && pos < b.length) {
+                int c = b[pos];
+                if (c >= 0) { // ASCII, casi todo el Json de la API
+                    cbuf[off + n++] = (char) c;
+                    ++pos;
+                    continue;
+                }
+                int extra, min;
+                if ((c & 0xe0) == 0xc0) {
+                    c &= 0x1f; extra = 1; min = 0x80;
+                } else if ((c & 0xf0) == 0xe0) {
+                    c &= 0x0f; extra = 2; min = 0x800;
+                } else if ((c & 0xf8) == 0xf0) {
+                    c &= 0x07; extra = 3; min = 0x10000;
+                } else {
+                    cbuf[off + n++] = '\uFFFD';
+                    ++pos;
+                    continue;
+                }
+                int i = 1;
+                for (; i <= extra && pos + i < b.length && (b[pos + i] & 0xc0) == 0x80; ++i)
+                    c = c << 6 | (b[pos + i] & 0x3f);
+                if (i <= extra) { // Secuencia cortada
+                    cbuf[off + n++] = '\uFFFD';
+                    pos += i;
+                    continue;
+                }
+                pos += i;
+                if (c < min || c > Character.MAX_CODE_POINT || (c >= 0xd800 && c <= 0xdfff)) {
+                    cbuf[off + n++] = '\uFFFD';
+                } else if (c < 0x10000) {
+                    cbuf[off + n++] = (char) c;
+                } else {
+                    cbuf[off + n++] = Character.highSurrogate(c);
+                    if (n < len)
+                        cbuf[off + n++] = Character.lowSurrogate(c);
+                    else
+                        pendingLowSurrogate = Character.lowSurrogate(c);
+                }
+            }
+            return n == 0 ? -1 : n;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package omdb;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de un {@link OmdbClient OmdbClient}: cantidad de peticiones, errores y bytes recibidos, e
+ * histogramas de latencia separados por etapa (red, parseo y conversión a texto) y por operación
+ * (búsqueda y detalles). Registrar es barato y no toma locks, así que se mide cada petición.
+ *
+ * Se pueden consultar por JMX (ver {@link #register register()}) o como texto con
+ * {@link #getSnapshot getSnapshot()}, que el cliente puede loguear periódicamente
+ * (ver {@link ClientOptions#setMetricsLogInterval ClientOptions.setMetricsLogInterval()}).
+ */
+public class ClientMetrics implements ClientMetricsMXBean {
+
+    private static final Logger logger = Logger.getLogger(ClientMetrics.class.getName());
+
+    private final ResponseCache<?> cache;
+    private final ResponseCache<?> negativeCache;
+    private final AdmissionController admission;
+    private final Prefetcher prefetcher;
+    private final SingleFlight<?, ?> detailFlights;
+    private final SingleFlight<?, ?> searchFlights;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+    private final LatencyHistogram network = new LatencyHistogram();
+    private final LatencyHistogram parse = new LatencyHistogram();
+    private final LatencyHistogram render = new LatencyHistogram();
+    private final LatencyHistogram search = new LatencyHistogram();
+    private final LatencyHistogram detail = new LatencyHistogram();
+    private ObjectName objectName;
+
+    /**
+     * Recibe las partes del cliente de las que se leen las métricas que no se registran acá
+     */
+    ClientMetrics(ResponseCache<?> cache, ResponseCache<?> negativeCache, AdmissionController admission,
+                  Prefetcher prefetcher, SingleFlight<?, ?> detailFlights, SingleFlight<?, ?> searchFlights) {
+        this.cache = cache;
+        this.negativeCache = negativeCache;
+        this.admission = admission;
+        this.prefetcher = prefetcher;
+        this.detailFlights = detailFlights;
+        this.searchFlights = searchFlights;
+    }
+
+    /**
+     * Registra una petición HTTP
+     * @param nanos tiempo desde que se envió hasta que se recibió el cuerpo completo (o falló)
+     * @param bytes tamaño del cuerpo de la respuesta
+     * @param failed true si falló o respondió con un código de error
+     */
+    void recordRequest(long nanos, long bytes, boolean failed) {
+
+        requests.increment();
+        if (failed) errors.increment();
+        responseBytes.add(bytes);
+        network.record(nanos);
+    }
+
+    void recordParse(long nanos) {
+        parse.record(nanos);
+    }
+
+    void recordSearch(long nanos) {
+        search.record(nanos);
+    }
+
+    void recordDetail(long nanos) {
+        detail.record(nanos);
+    }
+
+    /**
+     * Registra el tiempo que llevó mostrar o enviar resultados. Lo llama quien los convierte a texto o Json,
+     * ya que eso ocurre fuera del cliente.
+     * @param nanos duración en nanosegundos
+     */
+    public void recordRender(long nanos) {
+        render.record(nanos);
+    }
+
+    /**
+     * Publica las métricas por JMX en el servidor de la plataforma, como omdb:type=OmdbClient,name=...
+     * @param name nombre que distingue a este cliente de otros en la misma JVM
+     */
+    synchronized void register(String name) {
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName on = new ObjectName("omdb:type=OmdbClient,name=" + ObjectName.quote(name));
+            server.registerMBean(this, on);
+            objectName = on;
+        } catch (JMException e) {
+            // Sin JMX se pueden seguir consultando las métricas desde el código
+            logger.log(Level.WARNING, "No se pudieron registrar las métricas por JMX", e);
+        }
+    }
+
+    synchronized void unregister() {
+
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            // Ya no estaba registrado
+        }
+        objectName = null;
+    }
+
+    /**
+     * Loguea el resumen de las métricas (nivel INFO), para el caso en que no se consulten por JMX
+     */
+    void log() {
+        logger.info(getSnapshot());
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+    @Override
+    public LatencySnapshot getNetworkLatency() {
+        return new LatencySnapshot(network);
+    }
+
+    @Override
+    public LatencySnapshot getParseLatency() {
+        return new LatencySnapshot(parse);
+    }
+
+    @Override
+    public LatencySnapshot getRenderLatency() {
+        return new LatencySnapshot(render);
+    }
+
+    @Override
+    public LatencySnapshot getSearchLatency() {
+        return new LatencySnapshot(search);
+    }
+
+    @Override
+    public LatencySnapshot getDetailLatency() {
+        return new LatencySnapshot(detail);
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cache.getHits();
+    }
+
+    @Override
+    public long getNegativeCacheHits() {
+        return negativeCache.getHits();
+    }
+
+    @Override
+    public long getCoalescedRequests() {
+        return detailFlights.getCoalesced() + searchFlights.getCoalesced();
+    }
+
+    @Override
+    public int getConcurrencyLimit() {
+        return admission.getConcurrencyLimit();
+    }
+
+    @Override
+    public long getRetries() {
+        return admission.getRetries();
+    }
+
+    @Override
+    public long getPrefetched() {
+        return prefetcher.getStarted();
+    }
+
+    @Override
+    public double getPrefetchHitRate() {
+        return prefetcher.getHitRate();
+    }
+
+    @Override
+    public String getSnapshot() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("peticiones=").append(getRequests())
+                .append(" errores=").append(getErrors())
+                .append(" bytes=").append(getResponseBytes())
+                .append(" reintentos=").append(getRetries())
+                .append(" aciertos de caché=").append(getCacheHits())
+                .append(" (sin resultados=").append(getNegativeCacheHits()).append(')')
+                .append(" agrupadas=").append(getCoalescedRequests())
+                .append(" límite de concurrencia=").append(getConcurrencyLimit())
+                .append(" anticipados=").append(getPrefetched())
+                .append(String.format(" (%.0f%% usados)", getPrefetchHitRate() * 100)).append('\n');
+        sb.append("  red:      ").append(getNetworkLatency()).append('\n');
+        sb.append("  parseo:   ").append(getParseLatency()).append('\n');
+        sb.append("  render:   ").append(getRenderLatency()).append('\n');
+        sb.append("  búsqueda: ").append(getSearchLatency()).append('\n');
+        sb.append("  detalles: ").append(getDetailLatency());
+        return sb.toString();
+    }
+}
@@ -0,0 +1,56 @@
+package omdb;
+
+/**
+ * Métricas de {@link OmdbClient OmdbClient} publicadas por JMX (se ven con jconsole o VisualVM bajo
+ * omdb:type=OmdbClient). Ver {@link ClientMetrics ClientMetrics}.
+ */
+public interface ClientMetricsMXBean {
+
+    /** @return peticiones HTTP enviadas a la API (cada reintento cuenta) */
+    long getRequests();
+
+    /** @return peticiones HTTP que fallaron o respondieron con un código de error */
+    long getErrors();
+
+    /** @return bytes recibidos en los cuerpos de las respuestas */
+    long getResponseBytes();
+
+    /** @return latencia de cada petición HTTP, desde que se envía hasta que se recibe el cuerpo completo */
+    LatencySnapshot getNetworkLatency();
+
+    /** @return tiempo de parseo de cada respuesta */
+    LatencySnapshot getParseLatency();
+
+    /** @return tiempo de conversión de los resultados a texto o Json para mostrarlos o enviarlos */
+    LatencySnapshot getRenderLatency();
+
+    /** @return duración total de cada llamada a search() */
+    LatencySnapshot getSearchLatency();
+
+    /** @return duración total de cada llamada a getById() */
+    LatencySnapshot getDetailLatency();
+
+    /** @return búsquedas y pedidos de detalles respondidos desde la caché en memoria */
+    long getCacheHits();
+
+    /** @return peticiones sin resultados que no se repitieron porque ya se sabía la respuesta */
+    long getNegativeCacheHits();
+
+    /** @return pedidos que se sumaron a uno idéntico en curso */
+    long getCoalescedRequests();
+
+    /** @return límite actual de peticiones en curso (se adapta según la respuesta de la API) */
+    int getConcurrencyLimit();
+
+    /** @return reintentos de peticiones fallidas */
+    long getRetries();
+
+    /** @return detalles pedidos por adelantado (ver {@link Prefetcher Prefetcher}) */
+    long getPrefetched();
+
+    /** @return fracción de los detalles pedidos por adelantado que se terminaron usando */
+    double getPrefetchHitRate();
+
+    /** @return todas las métricas en texto, igual que el resumen periódico */
+    String getSnapshot();
+}
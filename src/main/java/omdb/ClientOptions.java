@@ -0,0 +1,548 @@
+package omdb;
+
+import java.net.http.HttpClient;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Opciones de configuración del transporte HTTP de {@link OmdbClient OmdbClient}. Igual que
+ * {@link RequestParams RequestParams}, es un simple contenedor de valores: se crea con valores por defecto
+ * razonables y se modifican sólo los que hagan falta antes de pasárselo al constructor del cliente.
+ *
+ * El cliente lee las opciones una sola vez al construirse, modificarlas después no tiene efecto.
+ */
+public class ClientOptions {
+
+    /**
+     * Qué hacer con una petición cuando se agotó la cuota diaria de la API
+     */
+    public enum QuotaPolicy {
+        /** fallar enseguida con {@link QuotaExceededException QuotaExceededException} */
+        REFUSE,
+        /** demorar la petición hasta que se renueve la cuota (medianoche UTC) */
+        QUEUE
+    }
+
+    /**
+     * Cuándo responder una búsqueda con el índice local de títulos ({@link moviedata.TitleIndex TitleIndex})
+     */
+    public enum LocalSearch {
+        /** nunca, siempre se consulta la API */
+        OFF,
+        /** sólo si la API no encuentra nada (por ejemplo por un error de tipeo) */
+        FALLBACK,
+        /** si el índice tiene resultados se usan esos, y si no se consulta la API */
+        FIRST
+    }
+
+    /**
+     * Por qué ordenar los resultados de una búsqueda. Salvo {@link #NONE NONE}, hace falta pedir los detalles
+     * de los resultados (ver {@link OmdbClient#rankAsync OmdbClient.rankAsync()})
+     */
+    public enum RankBy {
+        /** en el orden en que los devuelve la API */
+        NONE,
+        /** puntaje de imdb (imdbRating) */
+        IMDB_RATING,
+        /** puntaje de Metacritic (Metascore) */
+        METASCORE,
+        /** cantidad de votos en imdb (imdbVotes) */
+        VOTES
+    }
+
+    private HttpClient.Version httpVersion = HttpClient.Version.HTTP_1_1;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration requestTimeout = Duration.ofSeconds(15);
+    private int maxThreads = 4;
+    private int maxConcurrentRequests = 8;
+    private int maxResultsPerQuery = 200;
+    private int cacheMaxEntries = 1000;
+    private long cacheMaxBytes = 16 * 1024 * 1024;
+    private Duration cacheTtl = Duration.ofHours(1);
+    private Path cacheDirectory = null;
+    private long diskCacheMaxBytes = 512L * 1024 * 1024;
+    private Duration diskCacheTtl = Duration.ofDays(7);
+    private Duration diskCacheCompactionInterval = Duration.ofMinutes(10);
+    private double rateLimitPerSecond = 10;
+    private int rateLimitBurst = 10;
+    private int minConcurrentRequests = 1;
+    private int maxRetries = 3;
+    private Duration retryBaseDelay = Duration.ofMillis(200);
+    private Duration retryMaxDelay = Duration.ofSeconds(10);
+    private int dailyQuota = 1000;
+    private QuotaPolicy quotaPolicy = QuotaPolicy.REFUSE;
+    private String jmxName = null;
+    private int prefetchCount = 0;
+    private Duration metricsLogInterval = null;
+    private boolean compression = true;
+    private LocalSearch localSearch = LocalSearch.FALLBACK;
+    private int titleIndexMaxEntries = 100_000;
+    private int negativeCacheMaxEntries = 10_000;
+    private long negativeCacheMaxBytes = 2 * 1024 * 1024;
+    private Duration negativeCacheTtl = Duration.ofMinutes(10);
+    private RankBy rankBy = RankBy.NONE;
+    private int rankTopK = 10;
+    private int rankMaxCandidates = 100;
+    private int rankConcurrency = 4;
+
+    public ClientOptions() {
+
+    }
+
+    public ClientOptions(ClientOptions o) {
+        this.httpVersion = o.getHttpVersion();
+        this.connectTimeout = o.getConnectTimeout();
+        this.requestTimeout = o.getRequestTimeout();
+        this.maxThreads = o.getMaxThreads();
+        this.maxConcurrentRequests = o.getMaxConcurrentRequests();
+        this.maxResultsPerQuery = o.getMaxResultsPerQuery();
+        this.cacheMaxEntries = o.getCacheMaxEntries();
+        this.cacheMaxBytes = o.getCacheMaxBytes();
+        this.cacheTtl = o.getCacheTtl();
+        this.cacheDirectory = o.getCacheDirectory();
+        this.diskCacheMaxBytes = o.getDiskCacheMaxBytes();
+        this.diskCacheTtl = o.getDiskCacheTtl();
+        this.diskCacheCompactionInterval = o.getDiskCacheCompactionInterval();
+        this.rateLimitPerSecond = o.getRateLimitPerSecond();
+        this.rateLimitBurst = o.getRateLimitBurst();
+        this.minConcurrentRequests = o.getMinConcurrentRequests();
+        this.maxRetries = o.getMaxRetries();
+        this.retryBaseDelay = o.getRetryBaseDelay();
+        this.retryMaxDelay = o.getRetryMaxDelay();
+        this.dailyQuota = o.getDailyQuota();
+        this.quotaPolicy = o.getQuotaPolicy();
+        this.jmxName = o.getJmxName();
+        this.prefetchCount = o.getPrefetchCount();
+        this.metricsLogInterval = o.getMetricsLogInterval();
+        this.compression = o.isCompression();
+        this.localSearch = o.getLocalSearch();
+        this.titleIndexMaxEntries = o.getTitleIndexMaxEntries();
+        this.negativeCacheMaxEntries = o.getNegativeCacheMaxEntries();
+        this.negativeCacheMaxBytes = o.getNegativeCacheMaxBytes();
+        this.negativeCacheTtl = o.getNegativeCacheTtl();
+        this.rankBy = o.getRankBy();
+        this.rankTopK = o.getRankTopK();
+        this.rankMaxCandidates = o.getRankMaxCandidates();
+        this.rankConcurrency = o.getRankConcurrency();
+    }
+
+    /**
+     * Versión de HTTP a usar. Con HTTP/1.1 las conexiones se mantienen abiertas (keep-alive) y se reutilizan
+     * entre peticiones, con HTTP/2 se multiplexan varias peticiones sobre una misma conexión (si el servidor
+     * no soporta HTTP/2 el cliente vuelve a HTTP/1.1 automáticamente)
+     * @param httpVersion versión de HTTP
+     */
+    public void setHttpVersion(HttpClient.Version httpVersion) {
+        this.httpVersion = httpVersion;
+    }
+
+    /**
+     * @param connectTimeout tiempo máximo para establecer una conexión con el servidor
+     */
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @param requestTimeout tiempo máximo de espera de la respuesta a una petición
+     */
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * @param maxThreads cantidad máxima de hilos que usa el cliente HTTP para procesar respuestas
+     */
+    public void setMaxThreads(int maxThreads) {
+        if (maxThreads < 1)
+            throw new IllegalArgumentException("maxThreads debe ser al menos 1");
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * @param maxConcurrentRequests cantidad máxima de peticiones en curso al mismo tiempo (por ejemplo al
+     * buscar en un rango de años, donde se hace una petición por año)
+     */
+    public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+        if (maxConcurrentRequests < 1)
+            throw new IllegalArgumentException("maxConcurrentRequests debe ser al menos 1");
+        this.maxConcurrentRequests = maxConcurrentRequests;
+    }
+
+    /**
+     * @param maxResultsPerQuery cantidad máxima de resultados a traer por query cuando se piden todas las
+     * páginas (ver {@link RequestParams#setAllPages RequestParams.setAllPages()}). Evita que un título muy
+     * popular genere cientos de peticiones
+     */
+    public void setMaxResultsPerQuery(int maxResultsPerQuery) {
+        if (maxResultsPerQuery < 1)
+            throw new IllegalArgumentException("maxResultsPerQuery debe ser al menos 1");
+        this.maxResultsPerQuery = maxResultsPerQuery;
+    }
+
+    /**
+     * @param cacheMaxEntries cantidad máxima de respuestas guardadas en la caché en memoria (0 la deshabilita)
+     */
+    public void setCacheMaxEntries(int cacheMaxEntries) {
+        this.cacheMaxEntries = cacheMaxEntries;
+    }
+
+    /**
+     * @param cacheMaxBytes tamaño máximo estimado, en bytes, de la caché en memoria
+     */
+    public void setCacheMaxBytes(long cacheMaxBytes) {
+        this.cacheMaxBytes = cacheMaxBytes;
+    }
+
+    /**
+     * @param cacheTtl tiempo que una respuesta se considera válida en la caché en memoria
+     */
+    public void setCacheTtl(Duration cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    /**
+     * @param cacheDirectory directorio donde guardar la caché persistente de respuestas, o null para no usarla
+     * (es lo predeterminado)
+     */
+    public void setCacheDirectory(Path cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * @param diskCacheMaxBytes tamaño máximo del archivo de la caché en disco (como mucho 2GB)
+     */
+    public void setDiskCacheMaxBytes(long diskCacheMaxBytes) {
+        this.diskCacheMaxBytes = diskCacheMaxBytes;
+    }
+
+    /**
+     * @param diskCacheTtl tiempo que una respuesta se considera válida en la caché en disco
+     */
+    public void setDiskCacheTtl(Duration diskCacheTtl) {
+        this.diskCacheTtl = diskCacheTtl;
+    }
+
+    /**
+     * @param diskCacheCompactionInterval cada cuánto se revisa si hay que compactar la caché en disco
+     */
+    public void setDiskCacheCompactionInterval(Duration diskCacheCompactionInterval) {
+        this.diskCacheCompactionInterval = diskCacheCompactionInterval;
+    }
+
+    /**
+     * @param rateLimitPerSecond cantidad máxima de peticiones por segundo que se envían a la API (0 o menos
+     * para no limitarla)
+     */
+    public void setRateLimitPerSecond(double rateLimitPerSecond) {
+        this.rateLimitPerSecond = rateLimitPerSecond;
+    }
+
+    /**
+     * @param rateLimitBurst cantidad de peticiones que se pueden enviar de golpe antes de que empiece a regir
+     * el límite por segundo
+     */
+    public void setRateLimitBurst(int rateLimitBurst) {
+        if (rateLimitBurst < 1)
+            throw new IllegalArgumentException("rateLimitBurst debe ser al menos 1");
+        this.rateLimitBurst = rateLimitBurst;
+    }
+
+    /**
+     * @param minConcurrentRequests cantidad mínima de peticiones en curso a la que se puede reducir el límite
+     * cuando la API está saturada (el límite se adapta entre este valor y maxConcurrentRequests)
+     */
+    public void setMinConcurrentRequests(int minConcurrentRequests) {
+        if (minConcurrentRequests < 1)
+            throw new IllegalArgumentException("minConcurrentRequests debe ser al menos 1");
+        this.minConcurrentRequests = minConcurrentRequests;
+    }
+
+    /**
+     * @param maxRetries cantidad máxima de reintentos de una petición que falló por saturación (429), error
+     * del servidor (5xx) o timeout (0 para no reintentar)
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0)
+            throw new IllegalArgumentException("maxRetries no puede ser negativo");
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @param retryBaseDelay espera base entre reintentos, se duplica en cada intento
+     */
+    public void setRetryBaseDelay(Duration retryBaseDelay) {
+        this.retryBaseDelay = retryBaseDelay;
+    }
+
+    /**
+     * @param retryMaxDelay espera máxima entre reintentos
+     */
+    public void setRetryMaxDelay(Duration retryMaxDelay) {
+        this.retryMaxDelay = retryMaxDelay;
+    }
+
+    /**
+     * @param dailyQuota cantidad de peticiones por día que permite la API key (0 para no llevar la cuenta).
+     * La clave gratuita de OMDb permite 1000
+     */
+    public void setDailyQuota(int dailyQuota) {
+        this.dailyQuota = dailyQuota;
+    }
+
+    /**
+     * @param quotaPolicy qué hacer con las peticiones una vez agotada la cuota diaria
+     */
+    public void setQuotaPolicy(QuotaPolicy quotaPolicy) {
+        this.quotaPolicy = quotaPolicy;
+    }
+
+    /**
+     * @param jmxName nombre con el que se publican las métricas del cliente por JMX
+     * (omdb:type=OmdbClient,name=...), o null para no publicarlas (es lo predeterminado)
+     */
+    public void setJmxName(String jmxName) {
+        this.jmxName = jmxName;
+    }
+
+    /**
+     * @param metricsLogInterval cada cuánto se loguea un resumen de las métricas del cliente, o null para
+     * no loguearlo (es lo predeterminado)
+     */
+    public void setMetricsLogInterval(Duration metricsLogInterval) {
+        this.metricsLogInterval = metricsLogInterval;
+    }
+
+    /**
+     * @param prefetchCount cantidad de resultados de cada búsqueda cuyos detalles se piden por adelantado, en
+     * segundo plano, para mostrarlos al instante si se eligen (0 para no pedirlos, es lo predeterminado).
+     * Cada pedido anticipado gasta una petición de la cuota diaria, así que conviene sólo en uso interactivo
+     */
+    public void setPrefetchCount(int prefetchCount) {
+        if (prefetchCount < 0)
+            throw new IllegalArgumentException("prefetchCount no puede ser negativo");
+        this.prefetchCount = prefetchCount;
+    }
+
+    /**
+     * @param compression si es true (lo predeterminado) se piden las respuestas comprimidas con gzip o
+     * deflate. Las respuestas de búsqueda se comprimen a un cuarto de su tamaño, más o menos
+     */
+    public void setCompression(boolean compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @param localSearch cuándo responder las búsquedas con los títulos ya vistos en lugar de consultar la
+     * API (lo predeterminado es {@link LocalSearch#FALLBACK FALLBACK}). El índice sólo conoce lo que se buscó
+     * antes, así que con {@link LocalSearch#FIRST FIRST} una búsqueda puede traer menos resultados que la API
+     */
+    public void setLocalSearch(LocalSearch localSearch) {
+        this.localSearch = localSearch;
+    }
+
+    /**
+     * @param titleIndexMaxEntries cantidad máxima de metrajes en el índice local de títulos (0 para no
+     * indexarlos)
+     */
+    public void setTitleIndexMaxEntries(int titleIndexMaxEntries) {
+        if (titleIndexMaxEntries < 0)
+            throw new IllegalArgumentException("titleIndexMaxEntries no puede ser negativo");
+        this.titleIndexMaxEntries = titleIndexMaxEntries;
+    }
+
+    /**
+     * @param negativeCacheMaxEntries cantidad máxima de respuestas sin resultados ("Movie not found!",
+     * "Incorrect IMDb ID.") que se recuerdan para no volver a pedirlas (0 para no recordarlas)
+     */
+    public void setNegativeCacheMaxEntries(int negativeCacheMaxEntries) {
+        this.negativeCacheMaxEntries = negativeCacheMaxEntries;
+    }
+
+    /**
+     * @param negativeCacheMaxBytes tamaño máximo estimado, en bytes, de la caché de respuestas sin resultados
+     */
+    public void setNegativeCacheMaxBytes(long negativeCacheMaxBytes) {
+        this.negativeCacheMaxBytes = negativeCacheMaxBytes;
+    }
+
+    /**
+     * @param negativeCacheTtl tiempo que se recuerda una respuesta sin resultados. Conviene que sea más corto
+     * que el de la caché en memoria, porque lo que hoy no existe puede aparecer en la base de datos mañana
+     */
+    public void setNegativeCacheTtl(Duration negativeCacheTtl) {
+        this.negativeCacheTtl = negativeCacheTtl;
+    }
+
+    /**
+     * @param rankBy por qué ordenar los resultados de search() (lo predeterminado es no ordenarlos). Los
+     * mejores {@link #setRankTopK rankTopK} quedan primero y el resto sigue en el orden de la API
+     */
+    public void setRankBy(RankBy rankBy) {
+        this.rankBy = rankBy;
+    }
+
+    /**
+     * @param rankTopK cuántos de los mejores resultados ordenar
+     */
+    public void setRankTopK(int rankTopK) {
+        if (rankTopK < 1)
+            throw new IllegalArgumentException("rankTopK debe ser al menos 1");
+        this.rankTopK = rankTopK;
+    }
+
+    /**
+     * @param rankMaxCandidates cuántos resultados, como mucho, se consideran para ordenar (los primeros). Cada
+     * uno cuesta un pedido de detalles si no está en la caché, así que pone un techo al gasto de la cuota
+     */
+    public void setRankMaxCandidates(int rankMaxCandidates) {
+        if (rankMaxCandidates < 1)
+            throw new IllegalArgumentException("rankMaxCandidates debe ser al menos 1");
+        this.rankMaxCandidates = rankMaxCandidates;
+    }
+
+    /**
+     * @param rankConcurrency cuántos pedidos de detalles para ordenar pueden estar en curso al mismo tiempo
+     */
+    public void setRankConcurrency(int rankConcurrency) {
+        if (rankConcurrency < 1)
+            throw new IllegalArgumentException("rankConcurrency debe ser al menos 1");
+        this.rankConcurrency = rankConcurrency;
+    }
+
+    public HttpClient.Version getHttpVersion() {
+        return httpVersion;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getMaxResultsPerQuery() {
+        return maxResultsPerQuery;
+    }
+
+    public int getCacheMaxEntries() {
+        return cacheMaxEntries;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public Duration getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public Path getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    public long getDiskCacheMaxBytes() {
+        return diskCacheMaxBytes;
+    }
+
+    public Duration getDiskCacheTtl() {
+        return diskCacheTtl;
+    }
+
+    public Duration getDiskCacheCompactionInterval() {
+        return diskCacheCompactionInterval;
+    }
+
+    public double getRateLimitPerSecond() {
+        return rateLimitPerSecond;
+    }
+
+    public int getRateLimitBurst() {
+        return rateLimitBurst;
+    }
+
+    public int getMinConcurrentRequests() {
+        return minConcurrentRequests;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public Duration getRetryBaseDelay() {
+        return retryBaseDelay;
+    }
+
+    public Duration getRetryMaxDelay() {
+        return retryMaxDelay;
+    }
+
+    public int getDailyQuota() {
+        return dailyQuota;
+    }
+
+    public QuotaPolicy getQuotaPolicy() {
+        return quotaPolicy;
+    }
+
+    public String getJmxName() {
+        return jmxName;
+    }
+
+    public Duration getMetricsLogInterval() {
+        return metricsLogInterval;
+    }
+
+    public int getPrefetchCount() {
+        return prefetchCount;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public LocalSearch getLocalSearch() {
+        return localSearch;
+    }
+
+    public int getTitleIndexMaxEntries() {
+        return titleIndexMaxEntries;
+    }
+
+    public int getNegativeCacheMaxEntries() {
+        return negativeCacheMaxEntries;
+    }
+
+    public long getNegativeCacheMaxBytes() {
+        return negativeCacheMaxBytes;
+    }
+
+    public Duration getNegativeCacheTtl() {
+        return negativeCacheTtl;
+    }
+
+    public RankBy getRankBy() {
+        return rankBy;
+    }
+
+    public int getRankTopK() {
+        return rankTopK;
+    }
+
+    public int getRankMaxCandidates() {
+        return rankMaxCandidates;
+    }
+
+    public int getRankConcurrency() {
+        return rankConcurrency;
+    }
+}
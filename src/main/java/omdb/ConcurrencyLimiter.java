@@ -0,0 +1,124 @@
+package omdb;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Limita la cantidad de operaciones asíncronas que pueden estar en curso al mismo tiempo. Las que exceden
+ * el límite quedan en una cola y se inician, en orden de llegada, a medida que terminan las anteriores.
+ *
+ * A diferencia de un {@link java.util.concurrent.Semaphore Semaphore}, nunca bloquea al hilo que envía la
+ * operación, así que se puede usar desde los callbacks de un {@link CompletableFuture CompletableFuture}
+ * sin riesgo de dejar sin hilos al executor del cliente HTTP.
+ */
+public class ConcurrencyLimiter {
+
+    private int maxConcurrent;
+    private final Deque<Runnable> waiting = new ArrayDeque<>();
+    private int inFlight = 0;
+
+    public ConcurrencyLimiter(int maxConcurrent) {
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("maxConcurrent debe ser al menos 1");
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    /**
+     * Inicia la operación si hay lugar, o la encola si no.
+     * @param task función que inicia la operación y devuelve su resultado futuro
+     * @return un future que se completa con el resultado de la operación. Cancelarlo cancela la operación
+     * (o evita que se inicie si todavía estaba en la cola)
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> task) {
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> {
+            if (result.isDone()) { // Se canceló mientras esperaba
+                release();
+                return;
+            }
+            CompletableFuture<T> f;
+            try {
+                f = task.get();
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            f.whenComplete((value, error) -> {
+                release();
+                if (error != null)
+                    result.completeExceptionally(error);
+                else
+                    result.complete(value);
+            });
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled())
+                    f.cancel(true);
+            });
+        };
+
+        boolean startNow;
+        synchronized (this) {
+            startNow = inFlight < maxConcurrent;
+            if (startNow)
+                inFlight++;
+            else
+                waiting.add(start);
+        }
+        if (startNow)
+            start.run();
+        return result;
+    }
+
+    /**
+     * Libera un lugar, cediéndoselo directamente a la siguiente operación en la cola si la hay (y si el
+     * límite no bajó mientras tanto)
+     */
+    private void release() {
+
+        Runnable next;
+        synchronized (this) {
+            next = inFlight <= maxConcurrent ? waiting.poll() : null;
+            if (next == null)
+                inFlight--;
+        }
+        if (next != null)
+            next.run();
+    }
+
+    /**
+     * Cambia el límite. Si sube, se inician las operaciones encoladas que ahora entran; si baja, las que
+     * están en curso siguen hasta terminar pero no se inician nuevas hasta quedar por debajo del límite.
+     * @param maxConcurrent nuevo límite
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+
+        if (maxConcurrent < 1)
+            throw new IllegalArgumentException("maxConcurrent debe ser al menos 1");
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                this.maxConcurrent = maxConcurrent;
+                if (inFlight >= maxConcurrent || waiting.isEmpty()) return;
+                next = waiting.poll();
+                inFlight++;
+            }
+            next.run();
+        }
+    }
+
+    public synchronized int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiting.size();
+    }
+}
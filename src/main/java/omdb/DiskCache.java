@@ -0,0 +1,482 @@
+package omdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché persistente de respuestas de la API, para que al reiniciar la aplicación no haya que volver a pedir
+ * (y gastar cuota en) lo que ya se había pedido antes.
+ *
+ * Las entradas se agregan al final de un único archivo (nunca se modifica lo ya escrito) que se lee
+ * mapeado en memoria. Cada registro tiene el formato:
+ *
+ *     [int largo de la clave][int largo del valor][long vencimiento (ms)][clave UTF-8][valor]
+ *
+ * Si una clave se vuelve a escribir, el registro nuevo reemplaza al viejo. El índice en memoria guarda sólo
+ * un hash de 64 bits de la clave y la posición del registro (16 bytes por entrada), la clave completa se
+ * compara contra la guardada en el archivo al leer. Si dos claves tuvieran el mismo hash la última escrita
+ * reemplaza a la otra, lo que sólo provoca un fallo de caché.
+ *
+ * El índice se construye en segundo plano al abrir la caché recorriendo sólo las cabeceras de los registros,
+ * así que crear el objeto es instantáneo; las operaciones esperan a que termine la carga. Periódicamente se
+ * compacta el archivo, reescribiéndolo sin las entradas vencidas o reemplazadas.
+ *
+ * Si falla la lectura o escritura del archivo la caché se deshabilita (se comporta como si estuviera vacía)
+ * en lugar de propagar el error, ya que la aplicación funciona igual sin ella.
+ */
+public class DiskCache implements AutoCloseable {
+
+    private static final String FILE_NAME = "omdb-cache.seg";
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    /** Un MappedByteBuffer no puede superar los 2GB */
+    private static final long MAX_FILE_SIZE = Integer.MAX_VALUE;
+    /** Cuánto tiene que haber crecido el archivo desde el último mapeo, como mínimo, para volver a mapearlo */
+    private static final long MIN_REMAP_GROWTH = 1 << 16;
+
+    private final Path file;
+    private final long maxBytes;
+    private final Duration defaultTtl;
+    private final Clock clock;
+    private final ScheduledExecutorService background;
+    private final CompletableFuture<Void> loaded;
+
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private long fileSize = 0;
+    private long deadBytes = 0;
+    private final OffsetIndex index = new OffsetIndex();
+    private IOException error;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long compactions = 0;
+    private long remaps = 0;
+
+    public DiskCache(Path directory, long maxBytes, Duration defaultTtl, Duration compactionInterval) {
+        this(directory, maxBytes, defaultTtl, compactionInterval, Clock.systemUTC());
+    }
+
+    /**
+     * Abre (o crea) la caché en el directorio indicado. La carga del índice se hace en segundo plano.
+     * @param directory directorio donde se guarda el archivo de la caché
+     * @param maxBytes tamaño máximo del archivo (como mucho 2GB). Al llegar al tope se compacta y, si sigue
+     * lleno, se dejan de guardar entradas nuevas
+     * @param defaultTtl tiempo de vida de las entradas que no especifican uno propio
+     * @param compactionInterval cada cuánto se revisa si vale la pena compactar el archivo
+     * @param clock reloj con el que se calcula el vencimiento (útil para pruebas)
+     */
+    public DiskCache(Path directory, long maxBytes, Duration defaultTtl, Duration compactionInterval, Clock clock) {
+        this.file = directory.resolve(FILE_NAME);
+        this.maxBytes = Math.min(maxBytes, MAX_FILE_SIZE);
+        this.defaultTtl = defaultTtl;
+        this.clock = clock;
+
+        this.background = new ScheduledThreadPoolExecutor(1, OmdbClient.daemonThreadFactory("omdb-disk-cache"));
+        this.loaded = CompletableFuture.runAsync(() -> load(directory), background);
+        long interval = compactionInterval.toMillis();
+        background.scheduleWithFixedDelay(this::compactIfWorthIt, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param key clave de la entrada
+     * @return el valor guardado, o null si no hay ninguno o ya venció
+     */
+    public byte[] get(String key) {
+
+        awaitLoad();
+        synchronized (this) {
+            if (error != null) return null;
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            long offset = index.get(hash(keyBytes));
+            if (offset < 0) {
+                misses++;
+                return null;
+            }
+            try {
+                ByteBuffer buf = view(offset);
+                int keyLen = buf.getInt();
+                int valueLen = buf.getInt();
+                long expiresAt = buf.getLong();
+                byte[] storedKey = new byte[keyLen];
+                buf.get(storedKey);
+                if (! Arrays.equals(storedKey, keyBytes) || expiresAt <= clock.millis()) {
+                    misses++;
+                    return null;
+                }
+                byte[] value = new byte[valueLen];
+                buf.get(value);
+                hits++;
+                return value;
+            } catch (IOException e) {
+                disable(e);
+                return null;
+            }
+        }
+    }
+
+    public void put(String key, byte[] value) {
+        put(key, value, defaultTtl);
+    }
+
+    /**
+     * Agrega una entrada al final del archivo
+     * @param key clave de la entrada
+     * @param value valor a guardar
+     * @param ttl tiempo de vida de la entrada
+     */
+    public void put(String key, byte[] value, Duration ttl) {
+
+        awaitLoad();
+        synchronized (this) {
+            if (error != null) return;
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            long recordSize = HEADER_SIZE + keyBytes.length + value.length;
+            try {
+                if (fileSize + recordSize > maxBytes) {
+                    compact();
+                    if (fileSize + recordSize > maxBytes) return;
+                }
+                long offset = fileSize;
+                append(channel, offset, keyBytes, value, clock.millis() + ttl.toMillis());
+                fileSize += recordSize;
+                long old = index.put(hash(keyBytes), offset);
+                if (old >= 0)
+                    deadBytes += recordSizeAt(old);
+            } catch (IOException e) {
+                disable(e);
+            }
+        }
+    }
+
+    /**
+     * Compacta el archivo si más de la mitad de su contenido son entradas reemplazadas. Las vencidas no se
+     * cuentan (habría que recorrer todo el archivo), pero se descartan igual cuando se compacta.
+     */
+    private void compactIfWorthIt() {
+
+        synchronized (this) {
+            if (error != null || ! loaded.isDone() || deadBytes == 0 || deadBytes * 2 < fileSize) return;
+            try {
+                compact();
+            } catch (IOException e) {
+                disable(e);
+            }
+        }
+    }
+
+    /**
+     * Reescribe el archivo con sólo las entradas vigentes, en un archivo temporal que luego reemplaza al
+     * original. Se llama con el lock tomado.
+     * @throws IOException si falla la escritura
+     */
+    private void compact() throws IOException {
+
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        OffsetIndex newIndex = new OffsetIndex();
+        long newSize = 0;
+        long now = clock.millis();
+
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int slot = 0; slot < index.capacity(); ++slot) {
+                long offset = index.offsetAt(slot);
+                if (offset < 0) continue;
+                ByteBuffer buf = view(offset);
+                int keyLen = buf.getInt();
+                int valueLen = buf.getInt();
+                long expiresAt = buf.getLong();
+                if (expiresAt <= now) continue;
+                byte[] key = new byte[keyLen];
+                byte[] value = new byte[valueLen];
+                buf.get(key).get(value);
+                append(out, newSize, key, value, expiresAt);
+                newIndex.put(index.hashAt(slot), newSize);
+                newSize += HEADER_SIZE + keyLen + valueLen;
+            }
+            out.force(false);
+        }
+
+        channel.close();
+        mapped = null;
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileSize = newSize;
+        deadBytes = 0;
+        index.replaceWith(newIndex);
+        compactions++;
+    }
+
+    /**
+     * Abre el archivo y construye el índice leyendo las cabeceras de los registros. Si el último registro
+     * quedó a medio escribir (por ejemplo si se cortó la luz) se descarta.
+     * @param directory directorio de la caché
+     */
+    private synchronized void load(Path directory) {
+
+        try {
+            Files.createDirectories(directory);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            long size = Math.min(channel.size(), MAX_FILE_SIZE);
+            long offset = 0;
+            if (size > 0) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                while (offset + HEADER_SIZE <= size) {
+                    int keyLen = buf.getInt((int) offset);
+                    int valueLen = buf.getInt((int) offset + 4);
+                    long end = offset + HEADER_SIZE + (long) keyLen + valueLen;
+                    if (keyLen < 0 || valueLen < 0 || end > size) break;
+                    long old = index.put(hash(buf, (int) offset + HEADER_SIZE, keyLen), offset);
+                    if (old >= 0)
+                        deadBytes += recordSizeAt(buf, old);
+                    offset = end;
+                }
+                mapped = buf;
+            }
+            if (offset < channel.size()) {
+                channel.truncate(offset);
+                mapped = null;
+            }
+            fileSize = offset;
+        } catch (IOException e) {
+            disable(e);
+        }
+    }
+
+    /**
+     * Devuelve un buffer posicionado en el registro indicado. El archivo se mapea sólo hasta lo escrito, y
+     * se vuelve a mapear recién cuando lo agregado después supera a lo mapeado: así las lecturas intercaladas
+     * con escrituras no mapean todo el archivo cada vez. Los registros agregados después del último mapeo se
+     * leen directamente del archivo.
+     * @param offset posición del registro
+     * @return un buffer independiente para leer el registro
+     * @throws IOException si falla el mapeo o la lectura
+     */
+    private ByteBuffer view(long offset) throws IOException {
+
+        if (mapped == null || fileSize - mapped.capacity() > Math.max(mapped.capacity(), MIN_REMAP_GROWTH)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            remaps++;
+        }
+        int capacity = mapped.capacity();
+        if (offset + HEADER_SIZE <= capacity && offset + HEADER_SIZE + (long) mapped.getInt((int) offset)
+                + mapped.getInt((int) offset + 4) <= capacity)
+            return mapped.duplicate().position((int) offset);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        read(offset, header);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + header.getInt(0) + header.getInt(4));
+        read(offset, record);
+        return record.flip();
+    }
+
+    private void read(long offset, ByteBuffer buf) throws IOException {
+
+        while (buf.hasRemaining()) {
+            int n = channel.read(buf, offset + buf.position());
+            if (n < 0) throw new IOException("El registro en la posición " + offset + " está cortado");
+        }
+    }
+
+    private long recordSizeAt(long offset) throws IOException {
+        ByteBuffer buf = view(offset);
+        return HEADER_SIZE + (long) buf.getInt() + buf.getInt();
+    }
+
+    private static long recordSizeAt(ByteBuffer buf, long offset) {
+        return HEADER_SIZE + (long) buf.getInt((int) offset) + buf.getInt((int) offset + 4);
+    }
+
+    private static void append(FileChannel out, long offset, byte[] key, byte[] value, long expiresAt)
+            throws IOException {
+
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + key.length + value.length);
+        buf.putInt(key.length).putInt(value.length).putLong(expiresAt).put(key).put(value).flip();
+        while (buf.hasRemaining())
+            offset += out.write(buf, offset);
+    }
+
+    private void awaitLoad() {
+        loaded.join();
+    }
+
+    private void disable(IOException e) {
+        error = e;
+        index.clear();
+    }
+
+    /**
+     * Hash FNV-1a de 64 bits, suficientemente bueno y sin necesidad de materializar la clave como String
+     */
+    private static long hash(byte[] key) {
+        return hash(ByteBuffer.wrap(key), 0, key.length);
+    }
+
+    private static long hash(ByteBuffer buf, int from, int len) {
+
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < from + len; ++i) {
+            h ^= buf.get(i) & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Espera a que termine la carga y compactaciones en curso, y cierra el archivo
+     */
+    @Override
+    public void close() {
+
+        background.shutdown();
+        try {
+            background.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                if (channel != null)
+                    channel.close();
+            } catch (IOException ignored) {
+                // Al cerrar ya no importa
+            }
+            mapped = null;
+            if (error == null)
+                error = new IOException("Caché cerrada");
+        }
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return cantidad de veces que se mapeó el archivo para leerlo (sin contar la carga)
+     */
+    public synchronized long getRemaps() {
+        return remaps;
+    }
+
+    public synchronized long getFileSize() {
+        return fileSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * @return el error que deshabilitó la caché, o null si funciona normalmente
+     */
+    public synchronized IOException getError() {
+        return loaded.isDone() ? error : null;
+    }
+
+    /**
+     * Tabla hash de direccionamiento abierto de hash de clave (long) a posición en el archivo (long).
+     * Con cientos de miles de entradas ocupa unos pocos MB, contra decenas si se usara un HashMap de Strings.
+     */
+    private static class OffsetIndex {
+
+        private long[] hashes = new long[1024];
+        private long[] offsets = newOffsets(1024);
+        private int size = 0;
+
+        private static long[] newOffsets(int capacity) {
+            long[] a = new long[capacity];
+            Arrays.fill(a, -1);
+            return a;
+        }
+
+        long get(long hash) {
+            int mask = hashes.length - 1;
+            for (int i = slot(hash, mask); offsets[i] >= 0; i = (i + 1) & mask)
+                if (hashes[i] == hash) return offsets[i];
+            return -1;
+        }
+
+        /**
+         * @return la posición que tenía antes la clave, o -1 si no estaba
+         */
+        long put(long hash, long offset) {
+            if ((size + 1) * 4L > hashes.length * 3L)
+                grow();
+            int mask = hashes.length - 1;
+            int i = slot(hash, mask);
+            for (; offsets[i] >= 0; i = (i + 1) & mask) {
+                if (hashes[i] == hash) {
+                    long old = offsets[i];
+                    offsets[i] = offset;
+                    return old;
+                }
+            }
+            hashes[i] = hash;
+            offsets[i] = offset;
+            size++;
+            return -1;
+        }
+
+        private void grow() {
+            long[] oldHashes = hashes;
+            long[] oldOffsets = offsets;
+            hashes = new long[oldHashes.length * 2];
+            offsets = newOffsets(oldHashes.length * 2);
+            size = 0;
+            for (int i = 0; i < oldHashes.length; ++i)
+                if (oldOffsets[i] >= 0) put(oldHashes[i], oldOffsets[i]);
+        }
+
+        private static int slot(long hash, int mask) {
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        int capacity() {
+            return hashes.length;
+        }
+
+        long hashAt(int slot) {
+            return hashes[slot];
+        }
+
+        long offsetAt(int slot) {
+            return offsets[slot];
+        }
+
+        int size() {
+            return size;
+        }
+
+        void replaceWith(OffsetIndex other) {
+            hashes = other.hashes;
+            offsets = other.offsets;
+            size = other.size;
+        }
+
+        void clear() {
+            replaceWith(new OffsetIndex());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package omdb;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Cancelar un {@link CompletableFuture CompletableFuture} armado con thenApply() o thenCompose() no cancela
+ * el future del que depende: la petición Http de abajo de todo seguiría en curso (ocupando su lugar en el
+ * {@link AdmissionController AdmissionController}) aunque ya nadie espere su resultado. Estos métodos
+ * encadenan futures de forma que la cancelación también se propague hacia atrás.
+ */
+final class Futures {
+
+    private Futures() {
+
+    }
+
+    /**
+     * @param dependent future que depende de otros
+     * @param sources futures de los que depende
+     * @return el mismo dependent, que al cancelarse cancela también los sources
+     */
+    static <T> CompletableFuture<T> cancelling(CompletableFuture<T> dependent, CompletableFuture<?>... sources) {
+
+        dependent.whenComplete((v, t) -> {
+            if (dependent.isCancelled())
+                for (CompletableFuture<?> s : sources)
+                    s.cancel(true);
+        });
+        return dependent;
+    }
+
+    /**
+     * source.thenApply(fn), que al cancelarse cancela source
+     */
+    static <T, U> CompletableFuture<U> map(CompletableFuture<T> source, Function<? super T, ? extends U> fn) {
+        return cancelling(source.thenApply(fn), source);
+    }
+
+    /**
+     * source.thenCompose(fn), que al cancelarse cancela source o el future que devolvió fn, según cuál esté
+     * en curso
+     */
+    static <T, U> CompletableFuture<U> compose(CompletableFuture<T> source,
+                                               Function<? super T, ? extends CompletableFuture<U>> fn) {
+
+        AtomicReference<CompletableFuture<U>> inner = new AtomicReference<>();
+        CompletableFuture<U> result = new CompletableFuture<>();
+        CompletableFuture<U> composed = source.thenCompose(v -> {
+            CompletableFuture<U> f = fn.apply(v);
+            inner.set(f);
+            if (result.isCancelled()) f.cancel(true);
+            return f;
+        });
+        composed.whenComplete((v, t) -> {
+            if (t != null) result.completeExceptionally(t);
+            else result.complete(v);
+        });
+        result.whenComplete((v, t) -> {
+            if (! result.isCancelled()) return;
+            source.cancel(true);
+            CompletableFuture<U> f = inner.get();
+            if (f != null) f.cancel(true);
+        });
+        return result;
+    }
+
+    /**
+     * El HttpClient a veces no marca como cancelado su future: lo completa con una CancellationException
+     * envuelta en una CompletionException
+     * @param future future que terminó con error
+     * @param error el error con el que terminó
+     * @return true si terminó porque se lo canceló
+     */
+    static boolean isCancellation(CompletableFuture<?> future, Throwable error) {
+
+        if (future.isCancelled()) return true;
+        for (Throwable t = error; t != null; t = t.getCause())
+            if (t instanceof CancellationException) return true;
+        return false;
+    }
+}
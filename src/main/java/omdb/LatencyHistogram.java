@@ -0,0 +1,106 @@
+package omdb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias con buckets logarítmicos, al estilo de HdrHistogram: cada potencia de 2 se divide
+ * en 16 buckets lineales, así el error relativo de cualquier percentil es menor al 7% sin importar si se
+ * miden microsegundos o minutos, y ocupa unos pocos KB.
+ *
+ * Registrar un valor no toma ningún lock (sólo incrementos atómicos), así que se puede llamar desde
+ * cualquier hilo en el camino de cada petición. Leer los percentiles mientras se registran valores da un
+ * resultado aproximado pero consistente de a un bucket.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    /** Hasta 2^45 ns (unas 9 horas), lo que exceda se cuenta en el último bucket */
+    private static final int MAX_EXPONENT = 45;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param nanos duración a registrar, en nanosegundos
+     */
+    public void record(long nanos) {
+
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        long m;
+        while (nanos > (m = max.get()) && ! max.compareAndSet(m, nanos))
+            ;
+    }
+
+    private static int bucketOf(long v) {
+
+        if (v < SUB_COUNT) return (int) v;
+        int exponent = 63 - Long.numberOfLeadingZeros(v);
+        if (exponent > MAX_EXPONENT) return BUCKETS - 1;
+        int sub = (int) (v >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * @return el mayor valor que cae en el bucket (los percentiles se redondean hacia arriba)
+     */
+    private static long upperBound(int bucket) {
+
+        if (bucket < SUB_COUNT) return bucket;
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        int sub = bucket % SUB_COUNT;
+        long base = (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+        return base + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    /**
+     * @param percentile percentil buscado, entre 0 y 100 (por ejemplo 99.9)
+     * @return el valor en nanosegundos por debajo del cual está ese porcentaje de los valores registrados,
+     * o 0 si no hay ninguno
+     */
+    public long getPercentile(double percentile) {
+
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; ++i) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += snapshot[i];
+            if (seen >= target)
+                return Math.min(upperBound(i), getMax());
+        }
+        return getMax();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return promedio en nanosegundos, o 0 si no hay valores
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @return máximo en nanosegundos
+     */
+    public long getMax() {
+        return max.get();
+    }
+}
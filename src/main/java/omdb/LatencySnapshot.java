@@ -0,0 +1,54 @@
+package omdb;
+
+/**
+ * Resumen de un {@link LatencyHistogram LatencyHistogram} en un momento dado, en milisegundos. Por JMX se
+ * ve como un dato compuesto con un campo por cada getter.
+ */
+public class LatencySnapshot {
+
+    private final long count;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+    private final double p999Millis;
+    private final double maxMillis;
+
+    public LatencySnapshot(LatencyHistogram h) {
+        this.count = h.getCount();
+        this.meanMillis = h.getMean() / 1e6;
+        this.p50Millis = h.getPercentile(50) / 1e6;
+        this.p99Millis = h.getPercentile(99) / 1e6;
+        this.p999Millis = h.getPercentile(99.9) / 1e6;
+        this.maxMillis = h.getMax() / 1e6;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    public double getP999Millis() {
+        return p999Millis;
+    }
+
+    public double getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("n=%d media=%.2fms p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms",
+                count, meanMillis, p50Millis, p99Millis, p999Millis, maxMillis);
+    }
+}
@@ -1,12 +1,13 @@
 package omdb;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 import moviedata.MovieData;
-import moviedata.MovieDataComposite;
-import moviedata.MovieDataLeaf;
+import moviedata.LazyMovieData;
+import moviedata.MovieDataIndex;
+import moviedata.SearchHit;
+import moviedata.TitleIndex;
+import utils.StringUtils;
 
 import java.io.IOException;
 import java.net.URI;
@@ -16,22 +17,105 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Clase que emite peticiones a la API de Omdb. Permite obtener listados de películas buscando
  * por título ({@link #search search()}) u obtener los detalles completos de una película buscando
  * por ID de imdb ({@link #getById getById()}).
+ *
+ * Cada instancia tiene un único {@link HttpClient HttpClient} que vive lo mismo que ella, así las conexiones
+ * se reutilizan entre peticiones en lugar de abrir una nueva (con su handshake) cada vez. Por eso hay que
+ * cerrar el cliente con {@link #close close()} cuando ya no se use.
  */
-public class OmdbClient {
+public class OmdbClient implements AutoCloseable {
+
+    /** Cantidad de resultados por página que devuelve la API */
+    private static final int PAGE_SIZE = 10;
+    /** Error de la API cuando una búsqueda no tiene resultados */
+    private static final String NOT_FOUND = "Movie not found!";
+    /** Lo que ocupa, a grandes rasgos, el índice de campos de los detalles de una película */
+    private static final int LAZY_INDEX_SIZE = 1024;
+    /** Cada cuánto, como mucho, avisar cómo va un ranking */
+    private static final long PROGRESS_INTERVAL_NANOS = 100_000_000L;
+    /** Error de la API cuando no existe el ID pedido */
+    private static final String INCORRECT_ID = "Incorrect IMDb ID.";
+    /** Lo que ocupa, además de la clave y el cuerpo, una entrada de la caché de respuestas sin resultados */
+    private static final int ENTRY_OVERHEAD = 96;
+    /** Cantidad de pedidos anticipados de detalles en curso al mismo tiempo, ver {@link Prefetcher Prefetcher} */
+    private static final int PREFETCH_CONCURRENCY = 2;
 
     private final String baseUrl;
     private final String apiKey;
+    private final ClientOptions options;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final AdmissionController admission;
+    private final SingleFlight<String, MovieData> detailFlights = new SingleFlight<>();
+    private final SingleFlight<String, SearchPage> searchFlights = new SingleFlight<>();
+    private final ClientMetrics metrics;
+    private final Prefetcher prefetcher = new Prefetcher(this::detailsAsync, PREFETCH_CONCURRENCY);
+    // Guarda tanto MovieData (detalles) como MovieData[] (búsquedas), la clave indica cuál es cuál
+    private final ResponseCache<Object> cache;
+    private final ResponseCache<byte[]> negativeCache;
+    private final DiskCache diskCache;
+    private final TitleIndex titleIndex;
+    private final RangePlanner planner;
 
     public OmdbClient(String baseUrl, String apiKey) {
+        this(baseUrl, apiKey, new ClientOptions());
+    }
+
+    public OmdbClient(String baseUrl, String apiKey, ClientOptions options) {
         this.baseUrl = baseUrl;
         this.apiKey = apiKey;
+        this.options = new ClientOptions(options);
+        this.executor = Executors.newFixedThreadPool(this.options.getMaxThreads(), daemonThreadFactory("omdb-http"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(this.options.getHttpVersion())
+                .connectTimeout(this.options.getConnectTimeout())
+                .executor(executor)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(daemonThreadFactory("omdb-scheduler"));
+        this.admission = new AdmissionController(this.options, scheduler);
+        this.cache = new ResponseCache<>(this.options.getCacheMaxEntries(), this.options.getCacheMaxBytes(),
+                this.options.getCacheTtl());
+        this.negativeCache = new ResponseCache<>(this.options.getNegativeCacheMaxEntries(),
+                this.options.getNegativeCacheMaxBytes(), this.options.getNegativeCacheTtl());
+        this.diskCache = this.options.getCacheDirectory() == null ? null : new DiskCache(
+                this.options.getCacheDirectory(), this.options.getDiskCacheMaxBytes(),
+                this.options.getDiskCacheTtl(), this.options.getDiskCacheCompactionInterval());
+        this.titleIndex = new TitleIndex(this.options.getTitleIndexMaxEntries());
+        this.planner = new RangePlanner(PAGE_SIZE, this.options.getMaxResultsPerQuery(), this.options.getCacheTtl());
+        this.metrics = new ClientMetrics(cache, negativeCache, admission, prefetcher, detailFlights, searchFlights);
+        if (this.options.getJmxName() != null)
+            metrics.register(this.options.getJmxName());
+        Duration logInterval = this.options.getMetricsLogInterval();
+        if (logInterval != null)
+            scheduler.scheduleAtFixedRate(metrics::log, logInterval.toMillis(), logInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -45,9 +129,59 @@ public class OmdbClient {
      */
     public MovieData getById(RequestParams params) throws URISyntaxException, IOException, InterruptedException {
 
+        long start = System.nanoTime();
+        try {
+            if (params.getId() != null)
+                prefetcher.recordLookup(params.getId());
+            return await(getByIdAsync(params));
+        } finally {
+            metrics.recordDetail(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Versión asíncrona de {@link #getById getById}
+     * @param params Parámetros para la query (el ID es obligatorio)
+     * @return un future con los datos de la película
+     * @throws URISyntaxException si la URI está malformada
+     */
+    private CompletableFuture<MovieData> getByIdAsync(RequestParams params) throws URISyntaxException {
+
+        String key = cacheKey(params, false);
+        MovieData cached = (MovieData) cache.get(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+
         URI requestUri = new URI(buildQueryString(params, false));
-        HttpResponse<String> response = makeGetRequest(requestUri);
-        return buildMovieData(response.body(), "Detalles");
+        // Si ya hay un pedido idéntico en curso se espera ése en lugar de repetirlo
+        return detailFlights.execute(requestKey(requestUri), () -> Futures.map(fetchAsync(requestUri), body -> {
+            long parseStart = System.nanoTime();
+            // Casi nunca se leen todos los datos: se indexan los bytes y se decodifica sólo lo que se use
+            MovieData result = LazyMovieData.parse(body, "Detalles");
+            metrics.recordParse(System.nanoTime() - parseStart);
+            // Un error ("Incorrect IMDb ID.") lo recuerda la caché de "no encontrados", con su TTL más corto
+            if (! "False".equals(result.getValue("Response"))) {
+                titleIndex.add(result);
+                cache.put(key, result, estimateSize(result));
+            }
+            return result;
+        }));
+    }
+
+    /**
+     * Pide los detalles de un resultado de búsqueda, para {@link Prefetcher Prefetcher} y
+     * {@link #rankAsync rankAsync()}
+     * @param id ID de imdb
+     * @return un future con los detalles
+     */
+    private CompletableFuture<MovieData> detailsAsync(String id) {
+
+        RequestParams params = new RequestParams();
+        params.setId(id);
+        try {
+            return getByIdAsync(params);
+        } catch (URISyntaxException e) {
+            return CompletableFuture.failedFuture(e);
+        }
     }
 
     /**
@@ -56,7 +190,20 @@ public class OmdbClient {
      *
      * Si entre los parámetros se incluye un rango de años, entonces se ejecutan queries para cada
      * año comprendido en ese periodo y se agregan todos esos resultados (Esto produciría duplicados
-     * si no se usara un Set ya que hay películas listadas con más de un año)
+     * si no se combinaran en un {@link MovieDataIndex MovieDataIndex} ya que hay películas listadas con
+     * más de un año). Las queries de cada año
+     * se hacen en paralelo (como mucho {@link ClientOptions#getMaxConcurrentRequests()} a la vez), pero los
+     * resultados se agregan en orden de año. Si falla la query de algún año se devuelven igual los resultados
+     * de los demás, sólo se lanza una excepción si fallan todas.
+     *
+     * Por defecto sólo se trae la primera página de resultados de cada query, si se pide con
+     * {@link RequestParams#setAllPages RequestParams.setAllPages()} se traen todas.
+     *
+     * Según {@link ClientOptions#setLocalSearch ClientOptions.setLocalSearch()}, si la API no encuentra nada
+     * (o antes de consultarla) se busca en el índice local de títulos, ver {@link #searchLocal searchLocal()}.
+     *
+     * Si se pidió con {@link ClientOptions#setRankBy ClientOptions.setRankBy()}, los mejores resultados según
+     * ese puntaje quedan primero, ver {@link #rankAsync rankAsync()}.
      * @param params Parámetros para la query (obligatoriamente título, opcionalmente tipo, año o rango de años)
      * @return un array de {@link MovieData MovieData} con año, tipo e ID imdb de cada película que aparezca
      * en el resultado de la query.
@@ -66,46 +213,844 @@ public class OmdbClient {
      */
     public MovieData[] search(RequestParams params) throws URISyntaxException, IOException, InterruptedException {
 
-        // Usar un set evita duplicados
-        Set<MovieData> results = new LinkedHashSet<>();
+        long start = System.nanoTime();
+        // Los detalles que se estaban pidiendo por adelantado ya no sirven
+        prefetcher.cancel();
+        try {
+            MovieData[] results = await(searchAsync(params));
+            int prefetchCount = Math.min(options.getPrefetchCount(), results.length);
+            if (prefetchCount > 0) {
+                List<String> ids = new ArrayList<>(prefetchCount);
+                for (int i = 0; i < prefetchCount; ++i)
+                    ids.add(results[i].getId());
+                prefetcher.prefetch(ids);
+            }
+            return results;
+        } finally {
+            metrics.recordSearch(System.nanoTime() - start);
+        }
+    }
 
-        if (params.getEndYear() != null) {// Hay que buscar metrajes en un rango de tiempo
-            int startYear = Integer.parseInt(params.getStartYear());
-            int endYear = Integer.parseInt(params.getEndYear());
-            RequestParams clone = new RequestParams(params);
+    /**
+     * Versión asíncrona de {@link #search search()}: devuelve enseguida un future que se completa con los
+     * mismos resultados, en el mismo orden. Cancelar el future cancela las queries que sigan en curso.
+     *
+     * No dispara la descarga por adelantado de detalles ni registra la búsqueda en las métricas, eso queda
+     * para quien la llame.
+     * @param params Parámetros para la query (obligatoriamente título, opcionalmente tipo, año o rango de años)
+     * @return un future con los resultados, o que falla con el primer error si fallan todas las queries
+     * @throws URISyntaxException si la URI está malformada
+     */
+    public CompletableFuture<MovieData[]> searchAsync(RequestParams params) throws URISyntaxException {
 
-            for (int i = startYear; i <= endYear; ++i) {
-                clone.setYear(Integer.toString(i));
+        CompletableFuture<MovieData[]> found = findAsync(params);
+        ClientOptions.RankBy by = options.getRankBy();
+        if (by == ClientOptions.RankBy.NONE)
+            return found;
 
-                URI requestUri = new URI(buildQueryString(clone, true));
-                HttpResponse<String> response = makeGetRequest(requestUri);
-                results.addAll(parseSearchResults(response.body()));
+        CompletableFuture<MovieData[]> result = new CompletableFuture<>();
+        found.whenComplete((movies, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
+            }
+            CompletableFuture<Ranking> ranking = rankAsync(movies, by, null);
+            result.whenComplete((r, t) -> {
+                if (result.isCancelled()) ranking.cancel(true);
+            });
+            ranking.whenComplete((r, t) -> {
+                if (t != null) result.completeExceptionally(t);
+                else result.complete(r.bestFirst(movies));
+            });
+        });
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) found.cancel(true);
+        });
+        return result;
+    }
 
-                // Ordenar por puntaje?
+    /**
+     * Ordena resultados de búsqueda según un puntaje de sus detalles (imdbRating, Metascore o imdbVotes),
+     * que se piden en paralelo (como mucho {@link ClientOptions#getRankConcurrency()} a la vez). Se consideran
+     * los primeros {@link ClientOptions#getRankMaxCandidates()} resultados y se guardan sólo los mejores
+     * {@link ClientOptions#getRankTopK()}, ver {@link Ranking Ranking}. Los detalles quedan en la caché, así
+     * que elegir después uno de los mejores no cuesta otra petición.
+     *
+     * Si no se pueden obtener los detalles de algún resultado, queda afuera del ranking (se cuenta en
+     * {@link Ranking#getFailed()}).
+     * @param movies resultados de una búsqueda
+     * @param by puntaje por el que ordenar
+     * @param onProgress si no es null, se llama con el ranking parcial cada vez que cambian los mejores (como
+     * mucho cada 100ms), desde los hilos del cliente
+     * @return un future con el ranking, cuando llegaron todos los detalles. Cancelarlo cancela los pedidos
+     * que falten
+     */
+    public CompletableFuture<Ranking> rankAsync(MovieData[] movies, ClientOptions.RankBy by,
+                                                Consumer<Ranking> onProgress) {
+
+        if (by == ClientOptions.RankBy.NONE)
+            throw new IllegalArgumentException("No se indicó por qué ordenar");
+        int candidates = Math.min(movies.length, options.getRankMaxCandidates());
+        Ranking ranking = new Ranking(by, options.getRankTopK(), candidates);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(options.getRankConcurrency());
+        AtomicLong lastProgress = new AtomicLong(System.nanoTime());
+
+        List<CompletableFuture<MovieData>> requests = new ArrayList<>(candidates);
+        List<CompletableFuture<MovieData>> offered = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; ++i) {
+            int order = i;
+            String id = movies[i].getId();
+            CompletableFuture<MovieData> f = id == null ? CompletableFuture.completedFuture(null)
+                    : limiter.submit(() -> detailsAsync(id));
+            requests.add(f);
+            offered.add(f.whenComplete((details, error) -> {
+                if (error != null) {
+                    ranking.recordFailure();
+                    return;
+                }
+                if (! ranking.offer(order, details) || onProgress == null) return;
+                long last = lastProgress.get();
+                long now = System.nanoTime();
+                if (now - last >= PROGRESS_INTERVAL_NANOS && lastProgress.compareAndSet(last, now))
+                    onProgress.accept(ranking);
+            }));
+        }
+
+        CompletableFuture<Ranking> result = settled(offered).thenApply(v -> ranking);
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled())
+                requests.forEach(f -> f.cancel(true));
+        });
+        return result;
+    }
+
+    /**
+     * {@link #searchAsync searchAsync()} sin ordenar por puntaje
+     */
+    private CompletableFuture<MovieData[]> findAsync(RequestParams params) throws URISyntaxException {
+
+        String key = cacheKey(params, true);
+        MovieData[] cached = (MovieData[]) cache.get(key);
+        if (cached != null) return CompletableFuture.completedFuture(cached.clone());
+        if (options.getLocalSearch() == ClientOptions.LocalSearch.FIRST) {
+            MovieData[] local = searchLocal(params);
+            if (local.length > 0) return CompletableFuture.completedFuture(local);
+        }
+
+        RequestParams copy = new RequestParams(params);
+        CompletableFuture<List<CompletableFuture<SearchPage>>> planned = planQueries(params);
+        CompletableFuture<MovieData[]> result = planned.thenCompose(perQuery -> settled(perQuery).thenApply(v -> {
+            MovieData[] merged = mergeResults(key, perQuery);
+            return merged.length > 0 ? merged : localFallback(copy);
+        }));
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) {
+                planned.cancel(true);
+                planned.thenAccept(perQuery -> perQuery.forEach(f -> f.cancel(true)));
+            }
+        });
+        return result;
+    }
 
+    /**
+     * Como {@link #search search()}, pero entrega cada película en cuanto llega la respuesta de la query de
+     * su año, sin esperar a las demás. Las películas salen en orden de llegada (no de año) y sin duplicados.
+     * Cada suscripción hace su propia búsqueda (o la toma de la caché si ya estaba completa), respeta la
+     * demanda del suscriptor y si se cancela cancela las queries que falten.
+     *
+     * El flujo termina con onComplete, o con onError si fallan todas las queries (con el primer error, como
+     * {@link #search search()}). Si fallan sólo algunas se entregan los resultados de las demás. Al terminar
+     * se piden por adelantado los detalles de los primeros en llegar, igual que en {@link #search search()}.
+     * @param params Parámetros para la query (obligatoriamente título, opcionalmente tipo, año o rango de años)
+     * @return un Publisher con los resultados
+     */
+    public Flow.Publisher<MovieData> searchStream(RequestParams params) {
+
+        RequestParams copy = new RequestParams(params);
+        return subscriber -> {
+            StreamSubscription<MovieData> subscription = new StreamSubscription<>(subscriber);
+            subscriber.onSubscribe(subscription);
+            long start = System.nanoTime();
+            prefetcher.cancel();
+
+            String key = cacheKey(copy, true);
+            MovieData[] cached = (MovieData[]) cache.get(key);
+            if (cached != null) {
+                subscription.emit(Arrays.asList(cached));
+                subscription.complete();
+                metrics.recordSearch(System.nanoTime() - start);
+                List<String> first = new ArrayList<>();
+                for (int i = 0; i < Math.min(options.getPrefetchCount(), cached.length); ++i)
+                    first.add(cached[i].getId());
+                if (! first.isEmpty()) prefetcher.prefetch(first);
+                return;
+            }
+            if (options.getLocalSearch() == ClientOptions.LocalSearch.FIRST) {
+                MovieData[] local = searchLocal(copy);
+                if (local.length > 0) {
+                    subscription.emit(Arrays.asList(local));
+                    subscription.complete();
+                    metrics.recordSearch(System.nanoTime() - start);
+                    return;
+                }
+            }
+
+            CompletableFuture<List<CompletableFuture<SearchPage>>> planned;
+            try {
+                planned = planQueries(copy);
+            } catch (URISyntaxException e) {
+                subscription.fail(e);
+                return;
             }
-        } else { // Buscar metrajes en un año específico
-            URI requestUri = new URI(buildQueryString(params, true));
-            HttpResponse<String> response = makeGetRequest(requestUri);
-            results.addAll(parseSearchResults(response.body()));
+            subscription.setSources(List.of(planned));
+            planned.whenComplete((perQuery, error) -> {
+                if (error != null)
+                    subscription.fail(error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error);
+                else
+                    streamQueries(subscription, copy, key, perQuery, start);
+            });
+        };
+    }
+
+    /**
+     * Entrega los resultados de cada query de una búsqueda a medida que llegan, para
+     * {@link #searchStream searchStream()}
+     */
+    private void streamQueries(StreamSubscription<MovieData> subscription, RequestParams params, String key,
+                               List<CompletableFuture<SearchPage>> perQuery, long start) {
+
+        subscription.setSources(perQuery);
+
+        // Un rango de años puede traer la misma película más de una vez
+        Set<String> seen = new HashSet<>();
+        // Los primeros en llegar son los primeros que ve el usuario, esos se piden por adelantado
+        List<String> first = new ArrayList<>();
+        List<CompletableFuture<Void>> emitted = new ArrayList<>(perQuery.size());
+        for (CompletableFuture<SearchPage> f : perQuery) {
+            emitted.add(f.thenAccept(page -> {
+                List<MovieData> fresh = new ArrayList<>(page.results.size());
+                synchronized (seen) {
+                    for (MovieData m : page.results) {
+                        if (! seen.add(m.getId())) continue;
+                        fresh.add(m);
+                        if (first.size() < options.getPrefetchCount()) first.add(m.getId());
+                    }
+                }
+                subscription.emit(fresh);
+            }));
         }
+        // Se espera a que se hayan entregado todas las tandas antes de completar
+        settled(emitted).whenComplete((v, t) -> {
+            metrics.recordSearch(System.nanoTime() - start);
+            boolean empty;
+            synchronized (seen) {
+                empty = seen.isEmpty();
+            }
+            try {
+                mergeResults(key, perQuery);
+                if (empty)
+                    subscription.emit(Arrays.asList(localFallback(params)));
+                subscription.complete();
+                synchronized (seen) {
+                    if (! first.isEmpty()) prefetcher.prefetch(List.copyOf(first));
+                }
+            } catch (CompletionException e) {
+                subscription.fail(e.getCause());
+            }
+        });
+    }
+
+    /**
+     * Busca en el índice local de títulos, que tiene todos los metrajes que aparecieron en búsquedas o
+     * detalles anteriores, sin consultar la API. Acepta títulos incompletos ("star wa") o con errores de
+     * tipeo ("interstelar"), y aplica los mismos filtros de tipo y año que la API.
+     * @param params Parámetros para la query (título, y opcionalmente tipo, año o rango de años)
+     * @return los metrajes encontrados, vacío si no hay ninguno
+     */
+    public MovieData[] searchLocal(RequestParams params) {
+
+        Integer from = null, to = null;
+        if (params.getYear() != null && StringUtils.isInteger(params.getYear())) {
+            from = to = Integer.parseInt(params.getYear());
+        } else if (params.getStartYear() != null && StringUtils.isInteger(params.getStartYear())
+                && StringUtils.isInteger(params.getEndYear())) {
+            from = Integer.parseInt(params.getStartYear());
+            to = Integer.parseInt(params.getEndYear());
+        }
+        List<SearchHit> hits = titleIndex.search(params.getTitle(), params.getType(), from, to);
+        int max = options.getMaxResultsPerQuery();
+        return hits.subList(0, Math.min(hits.size(), max)).toArray(new MovieData[0]);
+    }
+
+    /**
+     * @return los resultados del índice local, si está habilitado para cuando la API no encuentra nada
+     */
+    private MovieData[] localFallback(RequestParams params) {
+
+        if (options.getLocalSearch() == ClientOptions.LocalSearch.OFF)
+            return new MovieData[0];
+        return searchLocal(params);
+    }
+
+    /**
+     * Decide con {@link RangePlanner RangePlanner} cómo resolver una búsqueda y lanza sus queries. Sin rango
+     * de años es una sola query. Con rango, si no se sabe cuántos resultados tiene la búsqueda sin año
+     * primero se averigua (con su primera página), y según eso se filtran sus resultados por año o se busca
+     * año por año.
+     * @param params Parámetros de la búsqueda
+     * @return un future con las queries lanzadas, en orden de año. Cancelarlo cancela la averiguación del total
+     * @throws URISyntaxException si la URI está malformada
+     */
+    private CompletableFuture<List<CompletableFuture<SearchPage>>> planQueries(RequestParams params)
+            throws URISyntaxException {
+
+        if (params.getEndYear() == null)
+            return CompletableFuture.completedFuture(List.of(searchQueryAsync(params)));
+
+        int from = Integer.parseInt(params.getStartYear());
+        int to = Integer.parseInt(params.getEndYear());
+        String plannerKey = RangePlanner.key(params.getTitle(), params.getType());
+        String description = "\"" + params.getTitle() + "\" " + from + "-" + to;
+        List<Integer> years = planner.candidateYears(plannerKey, from, to);
+        int rangeYears = to - from + 1;
+
+        RequestParams whole = new RequestParams(params);
+        whole.setYear(null);
+        int total = planner.knownTotal(plannerKey);
+        if (total >= 0)
+            return CompletableFuture.completedFuture(
+                    runPlan(params, whole, description, from, to, years, total, null));
+        if (years.size() < RangePlanner.MIN_YEARS_TO_PROBE) {
+            planner.record(description + " año por año", years.size(), rangeYears);
+            return CompletableFuture.completedFuture(perYear(params, years));
+        }
+
+        whole.setAllPages(false);
+        CompletableFuture<SearchPage> probe = searchQueryAsync(whole);
+        CompletableFuture<List<CompletableFuture<SearchPage>>> planned = probe.handle((page, error) -> {
+            if (error == null && (page.error == null || page.error.equals(NOT_FOUND)))
+                return runPlan(params, whole, description, from, to, years, page.totalResults, page);
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (cause instanceof CancellationException || cause instanceof QuotaExceededException)
+                throw new CompletionException(cause);
+            // No se pudo averiguar el total (por ejemplo "Too many results."), se busca año por año
+            planner.record(description + " año por año (sin total)", 1 + years.size(), rangeYears);
+            return perYear(params, years);
+        });
+        planned.whenComplete((r, t) -> {
+            if (planned.isCancelled()) probe.cancel(true);
+        });
+        return planned;
+    }
+
+    /**
+     * Lanza las queries del plan que corresponda según el total de resultados de la búsqueda sin año
+     * @param firstPage primera página de la búsqueda sin año, si ya se pidió para averiguar el total
+     */
+    private List<CompletableFuture<SearchPage>> runPlan(RequestParams params, RequestParams whole,
+                                                        String description, int from, int to,
+                                                        List<Integer> years, int total, SearchPage firstPage) {
+
+        int probeCost = firstPage == null ? 0 : 1;
+        int rangeYears = to - from + 1;
+        switch (planner.choose(total, years.size())) {
+            case EMPTY:
+                planner.record(description + " sin resultados", probeCost, rangeYears);
+                return List.of(CompletableFuture.completedFuture(new SearchPage()));
+            case FILTER:
+                planner.record(description + " filtrando " + total + " resultados",
+                        planner.pages(total), rangeYears);
+                CompletableFuture<SearchPage> all;
+                if (firstPage != null) {
+                    all = fetchRemainingPages(whole, firstPage);
+                } else {
+                    whole.setAllPages(true);
+                    try {
+                        all = searchQueryAsync(whole);
+                    } catch (URISyntaxException e) {
+                        throw new CompletionException(e);
+                    }
+                }
+                String plannerKey = RangePlanner.key(params.getTitle(), params.getType());
+                // Sin allPages cada año hubiera traído sólo su primera página
+                int perYearLimit = params.isAllPages() ? Integer.MAX_VALUE : PAGE_SIZE;
+                return List.of(Futures.map(all, page -> filterByYear(page, plannerKey, from, to, perYearLimit)));
+            default:
+                planner.record(description + " año por año", probeCost + years.size(), rangeYears);
+                return perYear(params, years);
+        }
+    }
+
+    /**
+     * Lanza una query por año
+     */
+    private List<CompletableFuture<SearchPage>> perYear(RequestParams params, List<Integer> years) {
 
-        return results.toArray(new MovieData[0]);
+        List<CompletableFuture<SearchPage>> perQuery = new ArrayList<>(years.size());
+        try {
+            for (int year : years) {
+                RequestParams clone = new RequestParams(params);
+                clone.setYear(Integer.toString(year));
+                perQuery.add(searchQueryAsync(clone));
+            }
+        } catch (URISyntaxException e) {
+            perQuery.forEach(f -> f.cancel(true));
+            throw new CompletionException(e);
+        }
+        return perQuery;
+    }
+
+    /**
+     * Se queda con los resultados cuyo año (el primero, si es una serie) está en el rango, ordenados por año
+     * como si se hubiera buscado año por año. Si la página está completa, recuerda qué años no tienen nada.
+     * @param perYearLimit máximo de resultados por año
+     */
+    private SearchPage filterByYear(SearchPage page, String plannerKey, int from, int to, int perYearLimit) {
+
+        List<MovieData> matches = new ArrayList<>();
+        int[] perYear = new int[to - from + 1];
+        for (MovieData m : page.results) {
+            int year = m instanceof SearchHit ? startYear(((SearchHit) m).getYear()) : -1;
+            if (year < from || year > to || perYear[year - from] >= perYearLimit) continue;
+            matches.add(m);
+            perYear[year - from]++;
+        }
+        matches.sort(Comparator.comparingInt(m -> startYear(((SearchHit) m).getYear())));
+
+        SearchPage filtered = new SearchPage();
+        filtered.results.addAll(matches);
+        filtered.totalResults = matches.size();
+        filtered.complete = page.complete;
+        if (page.complete && page.totalResults <= options.getMaxResultsPerQuery())
+            for (int year = from; year <= to; ++year)
+                if (perYear[year - from] == 0) planner.recordEmptyYear(plannerKey, year);
+        return filtered;
+    }
+
+    /**
+     * @return el primer año de un año o rango de años ("2008–2013"), o -1 si no tiene
+     */
+    private static int startYear(String year) {
+
+        if (year == null || year.length() < 4 || ! StringUtils.isInteger(year.substring(0, 4)))
+            return -1;
+        return Integer.parseInt(year.substring(0, 4));
+    }
+
+    /**
+     * @return un future que se completa cuando terminaron todos, bien o mal (a diferencia de allOf, que
+     * falla apenas falla uno)
+     */
+    private static CompletableFuture<Void> settled(List<? extends CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.stream()
+                .map(f -> f.handle((r, t) -> null))
+                .toArray(CompletableFuture<?>[]::new));
+    }
+
+    /**
+     * Junta en orden de año los resultados de queries ya terminadas y los guarda en la caché si están todos.
+     * @throws CompletionException con el primer error si fallaron todas
+     */
+    private MovieData[] mergeResults(String key, List<CompletableFuture<SearchPage>> perQuery) {
+
+        // Indexar por ID evita duplicados
+        MovieDataIndex results = new MovieDataIndex();
+        Throwable firstError = null;
+        int failed = 0;
+        boolean partial = false;
+        for (CompletableFuture<SearchPage> f : perQuery) {
+            try {
+                SearchPage page = f.join();
+                results.addAll(page.results);
+                partial |= ! page.complete;
+            } catch (CompletionException | CancellationException e) {
+                if (firstError == null)
+                    firstError = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                failed++;
+            }
+        }
+        if (failed == perQuery.size())
+            throw new CompletionException(firstError);
+
+        // El orden por puntaje (si se pidió) lo pone searchAsync(), porque necesita los detalles
+
+        MovieData[] array = results.toArray();
+        // Si falló algún año o página el resultado está incompleto, mejor no guardarlo. Uno vacío tampoco: lo
+        // recuerda la caché de "no encontrados", y así cada vez se busca en el índice local
+        if (failed == 0 && ! partial && array.length > 0)
+            cache.put(key, array.clone(), estimateSize(array));
+        return array;
     }
 
     /**
-     * Hace una petición GET Http al Uri pasado por parámetro y devuelve el resultado.
+     * Ejecuta la búsqueda para un único año (o sin año). Si se pidieron todas las páginas, lee la cantidad
+     * total de resultados de la primera y pide las restantes en paralelo, hasta llegar a
+     * {@link ClientOptions#getMaxResultsPerQuery()} resultados. Si hay una búsqueda idéntica en curso (por
+     * ejemplo otro hilo buscando lo mismo o un rango de años superpuesto) se comparte su resultado.
+     * @param params Parámetros para la query, sin rango de años
+     * @return un future con los resultados de todas las páginas, en orden y sin duplicados
+     * @throws URISyntaxException si la URI está malformada
+     */
+    private CompletableFuture<SearchPage> searchQueryAsync(RequestParams params) throws URISyntaxException {
+
+        URI firstPageUri = new URI(buildQueryString(params, true));
+        String key = requestKey(firstPageUri) + (params.isAllPages() ? "all" : "");
+        return searchFlights.execute(key, () -> {
+            CompletableFuture<SearchPage> firstPage = Futures.map(fetchAsync(firstPageUri),
+                    this::timedParseSearchPage);
+            if (params.getPage() == null) {
+                String plannerKey = RangePlanner.key(params.getTitle(), params.getType());
+                String year = params.getYear();
+                firstPage.thenAccept(page -> {
+                    // Lo que se aprende de cada búsqueda le sirve al planificador de rangos
+                    boolean found = page.error == null || page.error.equals(NOT_FOUND);
+                    if (found && year == null)
+                        planner.recordTotal(plannerKey, page.totalResults);
+                    else if (found && page.totalResults == 0 && StringUtils.isInteger(year))
+                        planner.recordEmptyYear(plannerKey, Integer.parseInt(year));
+                });
+            }
+
+            if (! params.isAllPages())
+                return firstPage;
+            return Futures.compose(firstPage, page -> fetchRemainingPages(params, page));
+        });
+    }
+
+    /**
+     * {@link #parseSearchPage parseSearchPage} registrando cuánto tarda
+     */
+    private SearchPage timedParseSearchPage(byte[] json) {
+
+        long start = System.nanoTime();
+        SearchPage page = parseSearchPage(json);
+        metrics.recordParse(System.nanoTime() - start);
+        titleIndex.addAll(page.results);
+        return page;
+    }
+
+    /**
+     * Pide las páginas 2 en adelante de una búsqueda y las agrega, en orden, a los resultados de la primera.
+     * Si falla alguna página se devuelven igual las demás.
+     * @param params Parámetros de la query
+     * @param firstPage primera página de resultados, de donde se obtiene el total
+     * @return un future con los resultados de todas las páginas (incompleto si falló alguna)
+     */
+    private CompletableFuture<SearchPage> fetchRemainingPages(RequestParams params, SearchPage firstPage) {
+
+        int maxResults = options.getMaxResultsPerQuery();
+        int total = Math.min(firstPage.totalResults, maxResults);
+        int pageCount = (total + PAGE_SIZE - 1) / PAGE_SIZE;
+
+        List<CompletableFuture<SearchPage>> rest = new ArrayList<>();
+        for (int i = 2; i <= pageCount; ++i) {
+            RequestParams clone = new RequestParams(params);
+            clone.setPage(Integer.toString(i));
+            URI uri = URI.create(buildQueryString(clone, true)); // Si la primera página era válida, ésta también
+            CompletableFuture<SearchPage> page = Futures.map(fetchAsync(uri), this::timedParseSearchPage);
+            rest.add(Futures.cancelling(page.exceptionally(e -> null), page));
+        }
+
+        CompletableFuture<?>[] pages = rest.toArray(new CompletableFuture<?>[0]);
+        return Futures.cancelling(CompletableFuture.allOf(pages).thenApply(v -> {
+            SearchPage merged = new SearchPage();
+            merged.totalResults = firstPage.totalResults;
+            merged.results.addAll(firstPage.results);
+            for (CompletableFuture<SearchPage> f : rest) {
+                SearchPage page = f.join();
+                if (page != null)
+                    merged.results.addAll(page.results);
+                else
+                    merged.complete = false;
+            }
+            // Puede haber más de la cuenta si el tope no es múltiplo del tamaño de página
+            if (merged.results.size() > maxResults) {
+                Iterator<MovieData> it = merged.results.iterator();
+                for (int i = 0; it.hasNext(); ++i) {
+                    it.next();
+                    if (i >= maxResults) it.remove();
+                }
+            }
+            return merged;
+        }), pages);
+    }
+
+    /**
+     * Hace una petición GET Http al Uri pasado por parámetro. Si la misma petición respondió hace poco que
+     * no había resultados, o si está habilitada la caché en disco y tiene la respuesta, no se hace la petición. Si no, se envía cuando lo permite el
+     * {@link AdmissionController AdmissionController} (tasa, cuota y peticiones en curso) y, si la respuesta
+     * es exitosa, se guarda en la caché en disco.
      * @param uri Uri al que enviar la petición
-     * @return un objeto {@link HttpResponse HttpResponse} cuyo cuerpo contiene
-     * el Json con la respuesta a la query
-     * @throws IOException si falla la petición
-     * @throws InterruptedException si es interrumpido antes de recibir respuesta
+     * @return un future que se completa con el cuerpo de la respuesta (ya descomprimido), o con
+     * {@link OmdbException OmdbException}
+     * si la API respondió con un error ({@link QuotaExceededException QuotaExceededException} si se agotó
+     * la cuota diaria)
+     */
+    private CompletableFuture<byte[]> fetchAsync(URI uri) {
+
+        String key = requestKey(uri);
+        byte[] notFound = negativeCache.get(key);
+        if (notFound != null)
+            return CompletableFuture.completedFuture(notFound);
+        String diskKey = diskCache == null ? null : key;
+        if (diskKey != null) {
+            byte[] cached = diskCache.get(diskKey);
+            if (cached != null)
+                return CompletableFuture.completedFuture(cached);
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(options.getRequestTimeout());
+        if (options.isCompression())
+            builder.header("Accept-Encoding", BodyDecoder.ACCEPT_ENCODING);
+        HttpRequest getReq = builder.build();
+        CompletableFuture<HttpResponse<byte[]>> response = admission
+                .submit(() -> {
+                    long start = System.nanoTime();
+                    CompletableFuture<HttpResponse<byte[]>> f = httpClient.sendAsync(getReq,
+                            HttpResponse.BodyHandlers.ofByteArray());
+                    // Una petición cancelada no es un error de la API
+                    f.whenComplete((r, error) -> metrics.recordRequest(System.nanoTime() - start,
+                            r == null ? 0 : r.body().length,
+                            error != null ? ! Futures.isCancellation(f, error) : r.statusCode() != 200));
+                    return f;
+                });
+        // Cancelar el future que se devuelve cancela la petición (y libera su lugar en el AdmissionController)
+        CompletableFuture<byte[]> body = Futures.map(response, r -> {
+            byte[] b = checkResponse(r);
+            if (isNotFound(b))
+                negativeCache.put(key, b, b.length + 2L * key.length() + ENTRY_OVERHEAD);
+            return b;
+        });
+        if (diskKey == null)
+            return body;
+        return Futures.map(body, b -> {
+            // Sólo se guardan respuestas exitosas, no errores como "Request limit reached!"
+            if (BodyDecoder.contains(b, "\"Response\":\"True\""))
+                diskCache.put(diskKey, b);
+            return b;
+        });
+    }
+
+    /**
+     * Revisa si la API respondió con un error. Las respuestas 200 con "Response":"False" (por ejemplo una
+     * búsqueda sin resultados) no son errores, se devuelven igual que siempre.
+     * @param response respuesta de la API
+     * @return el cuerpo de la respuesta, descomprimido si venía comprimido
+     * @throws CompletionException con causa {@link QuotaExceededException QuotaExceededException} si la API
+     * indica que se agotó la cuota diaria de la clave, o {@link OmdbException OmdbException} si la respuesta
+     * tiene cualquier otro código de error
+     */
+    private byte[] checkResponse(HttpResponse<byte[]> response) {
+
+        byte[] body;
+        try {
+            body = BodyDecoder.decode(response.body(),
+                    response.headers().firstValue("Content-Encoding").orElse(null));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        if (BodyDecoder.contains(body, "Request limit reached")) {
+            admission.quotaExhausted();
+            throw new CompletionException(new QuotaExceededException(response.statusCode(),
+                    "Se alcanzó el límite diario de peticiones de la API"));
+        }
+        if (response.statusCode() != 200)
+            throw new CompletionException(new OmdbException(response.statusCode(), errorMessage(response, body)));
+        return body;
+    }
+
+    /**
+     * @param response respuesta de error de la API
+     * @param body cuerpo de la respuesta, ya descomprimido
+     * @return el mensaje de error que incluye la API en el Json, o el código de estado si no hay
+     */
+    private static String errorMessage(HttpResponse<?> response, byte[] body) {
+
+        try (JsonReader reader = new JsonReader(BodyDecoder.reader(body))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("Error"))
+                    return reader.nextString();
+                reader.skipValue();
+            }
+        } catch (IOException | RuntimeException e) {
+            // No es un Json de la API (por ejemplo la página de error de un proxy)
+        }
+        return "La API respondió con el código " + response.statusCode();
+    }
+
+    /**
+     * @param body cuerpo de la respuesta, ya descomprimido
+     * @return true si la API respondió que no hay nada con esos datos (búsqueda sin resultados o ID
+     * inexistente), una respuesta que vale la pena recordar para no volver a pedirla
+     */
+    private static boolean isNotFound(byte[] body) {
+        return body.length < 256 && BodyDecoder.contains(body, "\"Response\":\"False\"")
+                && (BodyDecoder.contains(body, NOT_FOUND) || BodyDecoder.contains(body, INCORRECT_ID));
+    }
+
+    /**
+     * Clave que identifica a una petición, usada en la caché en disco y para agrupar peticiones idénticas en
+     * curso: la query sin la clave de la API, así la caché sigue sirviendo si cambia la clave
+     * @param uri Uri de la petición
+     * @return la clave
+     */
+    private String requestKey(URI uri) {
+        return uri.toString().replace("apikey=" + apiKey + "&", "");
+    }
+
+    /**
+     * Espera el resultado de un future, traduciendo sus errores a las excepciones que lanza el resto del cliente
+     * @param future future a esperar
+     * @return el resultado del future
+     * @throws IOException si falló la petición o no se pudo interpretar la respuesta
+     * @throws InterruptedException si es interrumpido antes de recibir respuesta (se cancela el future)
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException("Error al procesar la respuesta", e.getCause());
+        }
+    }
+
+    /**
+     * @return la caché en memoria de respuestas, para consultar sus estadísticas
+     */
+    public ResponseCache<?> getCache() {
+        return cache;
+    }
+
+    /**
+     * @return la caché de respuestas sin resultados, para consultar sus estadísticas
+     */
+    public ResponseCache<?> getNegativeCache() {
+        return negativeCache;
+    }
+
+    /**
+     * @return la caché en disco, o null si no está habilitada
      */
-    private static HttpResponse<String> makeGetRequest(URI uri) throws IOException, InterruptedException {
+    public DiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * @return el control de admisión de peticiones, para consultar sus estadísticas (reintentos, límite
+     * actual de peticiones en curso, cuota usada)
+     */
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * @return el que pide detalles por adelantado, para consultar cuántos se usaron
+     */
+    public Prefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * @return el índice local de títulos, para consultar su tamaño y uso
+     */
+    public TitleIndex getTitleIndex() {
+        return titleIndex;
+    }
+
+    /**
+     * @return el planificador de búsquedas por rango de años, para consultar cuántas peticiones ahorra
+     */
+    public RangePlanner getPlanner() {
+        return planner;
+    }
+
+    /**
+     * @return las métricas del cliente (peticiones, errores, bytes y latencias)
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return cantidad de pedidos (de detalles o de búsqueda por año) que no generaron una petición porque
+     * se sumaron a uno idéntico que estaba en curso
+     */
+    public long getCoalescedRequests() {
+        return detailFlights.getCoalesced() + searchFlights.getCoalesced();
+    }
+
+    /**
+     * Clave bajo la que se guarda en caché el resultado de una query
+     * @param params parámetros de la query
+     * @param searchAll true si es una búsqueda, false si es un pedido de detalles
+     * @return la clave
+     */
+    private static String cacheKey(RequestParams params, boolean searchAll) {
+        return (searchAll ? "search:" : "detail:") + params.toCanonicalString();
+    }
+
+    /**
+     * Estima cuánta memoria ocupan los datos, a grandes rasgos (2 bytes por caracter del texto que los
+     * representa, o el Json más su índice si no están decodificados). No hace falta precisión, sólo es para
+     * poner un techo a la caché.
+     * @param data datos a medir
+     * @return tamaño estimado en bytes
+     */
+    private static long estimateSize(MovieData... data) {
 
-        HttpRequest getReq = HttpRequest.newBuilder().uri(uri).build();
-        HttpClient client = HttpClient.newHttpClient();
-        return client.send(getReq, HttpResponse.BodyHandlers.ofString());
+        long size = 0;
+        for (MovieData m : data)
+            size += m instanceof LazyMovieData ? ((LazyMovieData) m).getByteSize() + LAZY_INDEX_SIZE
+                    : 2L * m.toString().length();
+        return size;
+    }
+
+    /**
+     * Libera los hilos del cliente HTTP y cierra la caché en disco. Las conexiones abiertas se cierran solas
+     * cuando el pool deja de usarse. Después de cerrado el cliente no se puede seguir usando.
+     */
+    @Override
+    public void close() {
+
+        metrics.unregister();
+        prefetcher.cancel();
+        if (diskCache != null)
+            diskCache.close();
+        scheduler.shutdownNow();
+        executor.shutdown();
+        try {
+            if (! executor.awaitTermination(5, TimeUnit.SECONDS))
+                executor.shutdownNow();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Crea hilos daemon con nombre, para que no impidan que termine la aplicación y sean fáciles de
+     * identificar en un volcado de hilos
+     * @param prefix prefijo del nombre de los hilos
+     * @return una fábrica de hilos
+     */
+    static ThreadFactory daemonThreadFactory(String prefix) {
+
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
     }
 
     /**
@@ -139,82 +1084,128 @@ public class OmdbClient {
         if (params.getYear() != null)
             queryString += "y=" + params.getYear() + "&";
 
+        if (params.getPage() != null)
+            queryString += "page=" + params.getPage() + "&";
+
         //System.out.println(queryString);
         return queryString;
     }
 
     /**
-     * Parsea el Json obtenido en la respuesta y genera una colección de
-     * objetos {@link MovieData MovieData} con los datos obtenidos.
-     *
-     * Se usa {@link LinkedHashSet LinkedHashSet} para eliminar duplicados y mantener el ordenamiento.
+     * Parsea el Json obtenido en la respuesta de una búsqueda, leyendo directamente los bytes. Se usa
+     * {@link LinkedHashSet LinkedHashSet} para eliminar duplicados y mantener el ordenamiento.
      * Véase: {@link #search search()}
-     * @param json
-     * @return
+     * @param json Json en UTF-8 obtenido como respuesta de una búsqueda
+     * @return la página de resultados, con la cantidad total de resultados de la búsqueda (de todas las páginas)
      */
-    private static LinkedHashSet<MovieData> parseSearchResults(String json) {
-
-        LinkedHashSet<MovieData> results = new LinkedHashSet<>();
-
-        JsonArray jsonArr = (JsonArray) JsonParser
-                .parseString(json)
-                .getAsJsonObject()
-                .get("Search");
-
-        if (jsonArr == null) return results;
+    private static SearchPage parseSearchPage(byte[] json) {
 
-        for (JsonElement elem : jsonArr) {
-            JsonObject obj = elem.getAsJsonObject();
+        try (JsonReader reader = new JsonReader(BodyDecoder.reader(json))) {
+            return readSearchPage(reader);
+        } catch (IOException e) {
+            throw new JsonParseException(e);
+        }
+    }
 
-            // De los resultados de la búsqueda sólo se muestran algunos datos, luego el usuario puede pedir más detalles
-            MovieDataComposite movie = new MovieDataComposite(obj.get("Title").toString());
+    /**
+     * Lee una página de resultados de búsqueda en una sola pasada, sin construir un árbol intermedio.
+     * @param reader lector posicionado al comienzo del Json
+     * @return la página de resultados
+     * @throws IOException si el Json está malformado
+     */
+    private static SearchPage readSearchPage(JsonReader reader) throws IOException {
 
-            movie.addChild(new MovieDataLeaf("Año", obj.get("Year").toString().replace("\"", "")));
-            movie.addChild(new MovieDataLeaf("Tipo", obj.get("Type").toString().replace("\"", "")));
-            movie.addChild(new MovieDataLeaf("imdbID", obj.get("imdbID").toString().replace("\"", "")));
+        SearchPage page = new SearchPage();
 
-            results.add(movie);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "Error":
+                    page.error = reader.nextString();
+                    break;
+                case "totalResults":
+                    String total = reader.nextString();
+                    if (StringUtils.isInteger(total))
+                        page.totalResults = Integer.parseInt(total);
+                    break;
+                case "Search":
+                    reader.beginArray();
+                    while (reader.hasNext())
+                        page.results.add(readSearchResult(reader));
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
         }
+        reader.endObject();
 
-        return results;
+        return page;
     }
 
     /**
-     * Construye un objeto {@link MovieData MovieData} con los datos del Json pasado
-     * por parámetro.
-     * @param json Json obtenido como respuesta de una query con datos de un metraje
-     * @param name Nombre para el objeto {@link MovieData MovieData} retornado. El
-     * valor o valores correspondiente a este nombre serán obtenidos a partir del Json.
-     * @return un objeto {@link MovieData MovieData} que contiene de forma anidada los
-     * datos resumidos de metrajes obtenidos a partir del Json
+     * Lee un resultado de búsqueda. De los resultados de la búsqueda sólo se muestran algunos datos, luego
+     * el usuario puede pedir más detalles.
+     * @param reader lector posicionado al comienzo del objeto Json del resultado
+     * @return el resultado, con año, tipo e ID imdb
+     * @throws IOException si el Json está malformado
      */
-    private static MovieData buildMovieData(String json, String name) {
-
-        MovieDataComposite root = new MovieDataComposite(name);
-        JsonObject jsonObj = JsonParser.parseString(json).getAsJsonObject();
+    private static MovieData readSearchResult(JsonReader reader) throws IOException {
 
-        for (String key : jsonObj.keySet()) {
-            JsonElement value = jsonObj.get(key);
+        String title = null, year = null, type = null, id = null;
 
-            if (value.isJsonArray()) {
-                MovieDataComposite m = new MovieDataComposite(key);
-                int i = 1;
-                for (JsonElement e : value.getAsJsonArray())
-                    m.addChild(buildMovieData(e.toString(), Integer.toString(i++)));
-                root.addChild(m);
-                continue;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "Title":
+                    title = readString(reader);
+                    break;
+                case "Year":
+                    year = readString(reader);
+                    break;
+                case "Type":
+                    type = readString(reader);
+                    break;
+                case "imdbID":
+                    id = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
             }
+        }
+        reader.endObject();
 
-            if (value.isJsonObject()) {
-                root.addChild(buildMovieData(value.toString(), key));
-                continue;
-            }
+        return new SearchHit(title, year, type, id);
+    }
 
-            if (value.isJsonPrimitive()) {
-                root.addChild(new MovieDataLeaf(key, value.toString().replace("\"", "")));
-            }
+    /**
+     * Lee un valor simple como String (los números y booleanos se devuelven tal como están escritos)
+     * @param reader lector posicionado al comienzo del valor
+     * @return el valor, o "N/A" si es null (como hace la API con los datos faltantes)
+     * @throws IOException si el Json está malformado
+     */
+    private static String readString(JsonReader reader) throws IOException {
+
+        switch (reader.peek()) {
+            case NULL:
+                reader.nextNull();
+                return "N/A";
+            case BOOLEAN:
+                return Boolean.toString(reader.nextBoolean());
+            default:
+                return reader.nextString();
         }
+    }
 
-        return root;
+    /**
+     * Una página de resultados de búsqueda (o varias ya combinadas), junto con el total de resultados
+     * informado por la API
+     */
+    private static class SearchPage {
+        final LinkedHashSet<MovieData> results = new LinkedHashSet<>();
+        int totalResults = 0;
+        boolean complete = true;
+        /** el error que devolvió la API, por ejemplo "Movie not found!" o "Too many results." */
+        String error = null;
     }
 }
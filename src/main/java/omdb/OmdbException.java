@@ -0,0 +1,28 @@
+package omdb;
+
+import java.io.IOException;
+
+/**
+ * Error informado por la API (una respuesta con un código de estado de error). Extiende
+ * {@link IOException IOException} para que quien llama al cliente lo trate como cualquier otra falla de
+ * la petición.
+ */
+public class OmdbException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int statusCode;
+
+    /**
+     * @param statusCode código de estado HTTP de la respuesta (0 si no hubo respuesta)
+     * @param message descripción del error, si la API la incluyó se usa esa
+     */
+    public OmdbException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
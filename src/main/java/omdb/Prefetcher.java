@@ -0,0 +1,138 @@
+package omdb;
+
+import moviedata.MovieData;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Pide por adelantado los detalles de los primeros resultados de una búsqueda, apostando a que el usuario
+ * va a elegir alguno. Los detalles quedan en la caché del cliente, así al elegirlo se muestran al instante
+ * (y si todavía no llegaron, el pedido se suma al que está en curso en lugar de repetirlo).
+ *
+ * Los pedidos anticipados tienen baja prioridad: van de a pocos por vez, para no ocupar los lugares del
+ * {@link AdmissionController AdmissionController} que necesitan los pedidos del usuario, y se cancelan
+ * cuando empieza otra búsqueda.
+ *
+ * Lleva la cuenta de cuántos de los pedidos anticipados se usaron, para saber si vale la pena (cada uno
+ * gasta una petición de la cuota diaria).
+ */
+public class Prefetcher {
+
+    /** Cuántos pedidos anticipados recordar para detectar si se usaron */
+    private static final int MAX_TRACKED = 64;
+
+    private final Function<String, CompletableFuture<MovieData>> fetch;
+    private final ConcurrencyLimiter limiter;
+    private List<CompletableFuture<MovieData>> current = new ArrayList<>();
+    private final Map<String, CompletableFuture<MovieData>> tracked = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<MovieData>> eldest) {
+            return size() > MAX_TRACKED;
+        }
+    };
+
+    private long started = 0;
+    private long completed = 0;
+    private long cancelled = 0;
+    private long hits = 0;
+    private long inFlightHits = 0;
+
+    /**
+     * @param fetch función que pide los detalles de un ID (y los guarda en la caché)
+     * @param maxConcurrent cantidad de pedidos anticipados en curso al mismo tiempo
+     */
+    Prefetcher(Function<String, CompletableFuture<MovieData>> fetch, int maxConcurrent) {
+        this.fetch = fetch;
+        this.limiter = new ConcurrencyLimiter(maxConcurrent);
+    }
+
+    /**
+     * Cancela los pedidos anticipados anteriores que no hayan terminado y empieza a pedir los nuevos
+     * @param ids IDs de imdb a pedir, en orden de prioridad
+     */
+    synchronized void prefetch(List<String> ids) {
+
+        cancel();
+        for (String id : ids) {
+            if (id == null || tracked.containsKey(id)) continue;
+            CompletableFuture<MovieData> f = limiter.submit(() -> fetch.apply(id));
+            started++;
+            f.whenComplete((v, e) -> {
+                synchronized (this) {
+                    if (e == null) completed++;
+                    else if (f.isCancelled()) cancelled++;
+                }
+            });
+            current.add(f);
+            tracked.put(id, f);
+        }
+    }
+
+    /**
+     * Cancela los pedidos anticipados que no hayan terminado (por ejemplo porque empezó otra búsqueda)
+     */
+    synchronized void cancel() {
+
+        for (CompletableFuture<MovieData> f : current)
+            f.cancel(true);
+        current = new ArrayList<>();
+        // Los cancelados no llegaron a la caché: si se vuelven a buscar, hay que volver a pedirlos
+        tracked.values().removeIf(CompletableFuture::isCancelled);
+    }
+
+    /**
+     * Avisa que el usuario pidió los detalles de un ID, para contar si se había pedido por adelantado
+     * @param id ID de imdb pedido
+     */
+    synchronized void recordLookup(String id) {
+
+        CompletableFuture<MovieData> f = tracked.remove(id);
+        if (f == null || f.isCancelled() || f.isCompletedExceptionally()) return;
+        if (f.isDone())
+            hits++;
+        else
+            inFlightHits++;
+    }
+
+    /**
+     * @return cantidad de pedidos anticipados iniciados
+     */
+    public synchronized long getStarted() {
+        return started;
+    }
+
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+    public synchronized long getCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return cantidad de veces que el usuario eligió un resultado cuyos detalles ya habían llegado
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return cantidad de veces que el usuario eligió un resultado cuyos detalles se estaban pidiendo
+     * (se ahorra parte de la espera)
+     */
+    public synchronized long getInFlightHits() {
+        return inFlightHits;
+    }
+
+    /**
+     * @return fracción de los pedidos anticipados que se terminaron usando (0 si no hubo ninguno)
+     */
+    public synchronized double getHitRate() {
+        return started == 0 ? 0 : (double) (hits + inFlightHits) / started;
+    }
+}
@@ -0,0 +1,93 @@
+package omdb;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Cuenta las peticiones hechas en el día (UTC, que es cuando OMDb reinicia la cuota) para no pasarse de la
+ * cuota diaria de la clave de la API. La cuenta vive en memoria, así que empieza de cero en cada ejecución.
+ */
+public class QuotaCounter {
+
+    private final int dailyLimit;
+    private final Clock clock;
+    private LocalDate day;
+    private int used = 0;
+
+    public QuotaCounter(int dailyLimit) {
+        this(dailyLimit, Clock.systemUTC());
+    }
+
+    /**
+     * @param dailyLimit cantidad de peticiones permitidas por día (0 es ilimitado)
+     * @param clock reloj con el que se determina el día (útil para pruebas)
+     */
+    public QuotaCounter(int dailyLimit, Clock clock) {
+        this.dailyLimit = dailyLimit;
+        this.clock = clock;
+        this.day = today();
+    }
+
+    /**
+     * @return true si queda cuota (y se descuenta una petición), false si se agotó
+     */
+    public synchronized boolean tryAcquire() {
+
+        rollOver();
+        if (dailyLimit > 0 && used >= dailyLimit) return false;
+        used++;
+        return true;
+    }
+
+    /**
+     * Devuelve una petición descontada que no se llegó a enviar
+     */
+    public synchronized void release() {
+
+        rollOver();
+        if (used > 0 && used < Integer.MAX_VALUE) used--;
+    }
+
+    /**
+     * Marca la cuota del día como agotada, por ejemplo cuando la API responde "Request limit reached!" aunque
+     * la cuenta local no haya llegado al límite (otra instancia pudo haber usado la misma clave)
+     */
+    public synchronized void exhaust() {
+
+        rollOver();
+        used = dailyLimit > 0 ? dailyLimit : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return milisegundos hasta que se reinicie la cuota (la medianoche UTC siguiente)
+     */
+    public long millisUntilReset() {
+
+        Instant midnight = today().plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        return Math.max(0, midnight.toEpochMilli() - clock.millis());
+    }
+
+    private void rollOver() {
+
+        LocalDate today = today();
+        if (! today.equals(day)) {
+            day = today;
+            used = 0;
+        }
+    }
+
+    private LocalDate today() {
+        return LocalDate.ofInstant(clock.instant(), ZoneOffset.UTC);
+    }
+
+    public synchronized int getUsed() {
+        rollOver();
+        return used;
+    }
+
+    public int getDailyLimit() {
+        return dailyLimit;
+    }
+}
@@ -0,0 +1,14 @@
+package omdb;
+
+/**
+ * Se agotó la cuota diaria de peticiones de la clave de la API, ya sea según la cuenta local
+ * ({@link QuotaCounter QuotaCounter}) o porque la API respondió "Request limit reached!"
+ */
+public class QuotaExceededException extends OmdbException {
+
+    private static final long serialVersionUID = 1L;
+
+    public QuotaExceededException(int statusCode, String message) {
+        super(statusCode, message);
+    }
+}
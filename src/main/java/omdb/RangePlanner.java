@@ -0,0 +1,179 @@
+package omdb;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decide cómo resolver una búsqueda con rango de años gastando la menor cantidad de peticiones. La API sólo
+ * filtra por un año a la vez, así que lo directo es una query por año (125 peticiones para 1900-2024, aunque
+ * la mayoría de los años no tengan nada). En cambio:
+ *
+ * - Si la búsqueda sin año tiene pocos resultados, se traen todas sus páginas y se filtra por año acá:
+ *   cuesta una petición cada 10 resultados, en lugar de una por año.
+ * - Si no encuentra nada, ningún año va a encontrar algo.
+ * - Si tiene demasiados (más de {@link ClientOptions#getMaxResultsPerQuery()}, quedarían resultados
+ *   afuera), se busca año por año, salteando los años que ya se sabe que no tienen nada.
+ *
+ * Para eso recuerda, por título y tipo, el total de resultados sin año y los años vacíos que vio el cliente.
+ * Lo que recuerda vence igual que la caché en memoria. Cada plan se loguea (nivel FINE) con las peticiones
+ * que cuesta y las que hubiera costado ir año por año.
+ */
+public class RangePlanner {
+
+    private static final Logger logger = Logger.getLogger(RangePlanner.class.getName());
+    /** Con menos años que esto no conviene gastar una petición en averiguar el total */
+    static final int MIN_YEARS_TO_PROBE = 3;
+    private static final int MAX_REMEMBERED = 1024;
+
+    enum Strategy {
+        /** la búsqueda sin año no encontró nada */
+        EMPTY,
+        /** traer todas las páginas de la búsqueda sin año y filtrar por año */
+        FILTER,
+        /** una query por año */
+        PER_YEAR
+    }
+
+    private static final class Knowledge {
+        int total = -1;
+        final BitSet emptyYears = new BitSet();
+        long expires;
+    }
+
+    private final int pageSize;
+    private final int maxResults;
+    private final long ttlNanos;
+    private final Map<String, Knowledge> known = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Knowledge> eldest) {
+            return size() > MAX_REMEMBERED;
+        }
+    };
+
+    private long plans = 0;
+    private long requests = 0;
+    private long perYearRequests = 0;
+
+    RangePlanner(int pageSize, int maxResults, Duration ttl) {
+        this.pageSize = pageSize;
+        this.maxResults = maxResults;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /**
+     * @return la clave con la que se recuerda lo que se sabe de una búsqueda
+     */
+    static String key(String title, String type) {
+        return (title == null ? "" : title.trim().toLowerCase(Locale.ROOT)) + "|" + (type == null ? "" : type);
+    }
+
+    /**
+     * @return los años del rango que no se sabe que estén vacíos, en orden
+     */
+    synchronized List<Integer> candidateYears(String key, int from, int to) {
+
+        Knowledge k = get(key);
+        List<Integer> years = new ArrayList<>();
+        for (int year = from; year <= to; ++year)
+            if (k == null || year < 0 || ! k.emptyYears.get(year)) years.add(year);
+        return years;
+    }
+
+    /**
+     * @return el total de resultados de la búsqueda sin año, o -1 si no se sabe
+     */
+    synchronized int knownTotal(String key) {
+        Knowledge k = get(key);
+        return k == null ? -1 : k.total;
+    }
+
+    synchronized void recordTotal(String key, int total) {
+        getOrCreate(key).total = total;
+    }
+
+    synchronized void recordEmptyYear(String key, int year) {
+        if (year >= 0) getOrCreate(key).emptyYears.set(year);
+    }
+
+    /**
+     * @param total total de resultados de la búsqueda sin año
+     * @param years cantidad de años en los que habría que buscar
+     * @return la estrategia más barata
+     */
+    Strategy choose(int total, int years) {
+
+        if (total == 0 || years == 0)
+            return Strategy.EMPTY;
+        if (total <= maxResults && pages(total) <= years)
+            return Strategy.FILTER;
+        return Strategy.PER_YEAR;
+    }
+
+    /**
+     * @return cantidad de páginas de una búsqueda con ese total
+     */
+    int pages(int total) {
+        return (Math.min(total, maxResults) + pageSize - 1) / pageSize;
+    }
+
+    /**
+     * Registra y loguea un plan
+     * @param description qué se buscó y cómo
+     * @param cost peticiones que cuesta el plan, contando la del total
+     * @param years cantidad de años del rango (lo que costaría ir año por año)
+     */
+    synchronized void record(String description, int cost, int years) {
+
+        plans++;
+        requests += cost;
+        perYearRequests += years;
+        if (logger.isLoggable(Level.FINE))
+            logger.fine(String.format("%s: %d peticiones (%d año por año)", description, cost, years));
+    }
+
+    public synchronized long getPlans() {
+        return plans;
+    }
+
+    /**
+     * @return peticiones de todos los planes, contando las que averiguan el total
+     */
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    /**
+     * @return peticiones ahorradas respecto de buscar siempre año por año
+     */
+    public synchronized long getSavedRequests() {
+        return perYearRequests - requests;
+    }
+
+    private Knowledge get(String key) {
+
+        Knowledge k = known.get(key);
+        if (k != null && System.nanoTime() - k.expires > 0) {
+            known.remove(key);
+            return null;
+        }
+        return k;
+    }
+
+    private Knowledge getOrCreate(String key) {
+
+        Knowledge k = get(key);
+        if (k == null) {
+            k = new Knowledge();
+            k.expires = System.nanoTime() + ttlNanos;
+            known.put(key, k);
+        }
+        return k;
+    }
+}
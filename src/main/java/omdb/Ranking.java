@@ -0,0 +1,197 @@
+package omdb;
+
+import moviedata.MovieData;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Los mejores K resultados de una búsqueda según un puntaje de sus detalles, a medida que van llegando. No
+ * se ordenan todos: se guardan sólo los K mejores en un heap cuya raíz es el peor de ellos, así que cada
+ * detalle nuevo cuesta O(log K) y miles de resultados se ordenan en lo que tardan en llegar sus detalles.
+ *
+ * A igual puntaje queda primero el que la API devolvió antes. Los detalles sin el puntaje (por ejemplo
+ * "Metascore": "N/A") no entran en el ranking.
+ *
+ * Es thread-safe, los detalles llegan desde los hilos del cliente HTTP.
+ */
+public class Ranking {
+
+    private static final class Entry {
+        final double score;
+        final int order;
+        final MovieData details;
+
+        Entry(double score, int order, MovieData details) {
+            this.score = score;
+            this.order = order;
+            this.details = details;
+        }
+    }
+
+    /** De peor a mejor: la raíz del heap es la primera en salir */
+    private static final Comparator<Entry> WORST_FIRST = Comparator.<Entry>comparingDouble(e -> e.score)
+            .thenComparing(Comparator.<Entry>comparingInt(e -> e.order).reversed());
+
+    private final ClientOptions.RankBy by;
+    private final int k;
+    private final int candidates;
+    private final PriorityQueue<Entry> heap;
+
+    private int enriched = 0;
+    private int unrated = 0;
+    private int failed = 0;
+
+    /**
+     * @param by puntaje por el que ordenar
+     * @param k cuántos de los mejores guardar
+     * @param candidates cantidad de resultados que se van a considerar
+     */
+    Ranking(ClientOptions.RankBy by, int k, int candidates) {
+        this.by = by;
+        this.k = k;
+        this.candidates = candidates;
+        this.heap = new PriorityQueue<>(k + 1, WORST_FIRST);
+    }
+
+    /**
+     * @param details detalles de un resultado
+     * @param by puntaje a leer
+     * @return el puntaje, o NaN si los detalles no lo tienen
+     */
+    static double score(MovieData details, ClientOptions.RankBy by) {
+
+        if (details == null) return Double.NaN;
+        String value;
+        switch (by) {
+            case IMDB_RATING:
+                value = details.getValue("imdbRating");
+                break;
+            case METASCORE:
+                value = details.getValue("Metascore");
+                break;
+            case VOTES:
+                value = details.getValue("imdbVotes");
+                if (value != null) value = value.replace(",", "");
+                break;
+            default:
+                return Double.NaN;
+        }
+        try {
+            return value == null ? Double.NaN : Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN; // "N/A"
+        }
+    }
+
+    /**
+     * @param order posición del resultado en la búsqueda
+     * @param details sus detalles
+     * @return true si entró entre los K mejores
+     */
+    synchronized boolean offer(int order, MovieData details) {
+
+        enriched++;
+        double score = score(details, by);
+        if (Double.isNaN(score)) {
+            unrated++;
+            return false;
+        }
+        Entry e = new Entry(score, order, details);
+        if (heap.size() < k) {
+            heap.add(e);
+            return true;
+        }
+        if (WORST_FIRST.compare(e, heap.peek()) <= 0)
+            return false;
+        heap.poll();
+        heap.add(e);
+        return true;
+    }
+
+    synchronized void recordFailure() {
+        failed++;
+    }
+
+    /**
+     * @return los detalles de los mejores hasta ahora, del mejor al peor
+     */
+    public synchronized MovieData[] getTop() {
+
+        Entry[] entries = heap.toArray(new Entry[0]);
+        Arrays.sort(entries, WORST_FIRST.reversed());
+        MovieData[] top = new MovieData[entries.length];
+        for (int i = 0; i < entries.length; ++i)
+            top[i] = entries[i].details;
+        return top;
+    }
+
+    /**
+     * @param details detalles de un resultado
+     * @return su puntaje según lo que ordena este ranking, o NaN si no lo tiene
+     */
+    public double getScore(MovieData details) {
+        return score(details, by);
+    }
+
+    /**
+     * @param movies los resultados de búsqueda que se ordenaron
+     * @return los resultados con los mejores hasta ahora primero (del mejor al peor) y los demás a
+     * continuación, en el orden que tenían
+     */
+    public synchronized MovieData[] bestFirst(MovieData[] movies) {
+
+        Entry[] entries = heap.toArray(new Entry[0]);
+        Arrays.sort(entries, WORST_FIRST.reversed());
+        MovieData[] sorted = new MovieData[movies.length];
+        boolean[] placed = new boolean[movies.length];
+        int n = 0;
+        for (Entry e : entries) {
+            sorted[n++] = movies[e.order];
+            placed[e.order] = true;
+        }
+        for (int i = 0; i < movies.length; ++i)
+            if (! placed[i]) sorted[n++] = movies[i];
+        return sorted;
+    }
+
+    public ClientOptions.RankBy getRankBy() {
+        return by;
+    }
+
+    /**
+     * @return cantidad de resultados considerados
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @return cantidad de resultados cuyos detalles ya llegaron
+     */
+    public synchronized int getEnriched() {
+        return enriched;
+    }
+
+    /**
+     * @return cantidad de resultados cuyos detalles no tienen el puntaje
+     */
+    public synchronized int getUnrated() {
+        return unrated;
+    }
+
+    /**
+     * @return cantidad de resultados cuyos detalles no se pudieron obtener
+     */
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return true si ya se consideraron todos los resultados
+     */
+    public synchronized boolean isComplete() {
+        return enriched + failed == candidates;
+    }
+}
@@ -1,5 +1,10 @@
 package omdb;
 
+import utils.StringUtils;
+
+import java.time.Year;
+import java.util.Locale;
+
 /**
  * Objeto que contiene los parámetros para generar una query a la API. No tiene mucha funcionalidad,
  * pero facilita el crear una query donde el número y el orden de los argumentos es variable.
@@ -7,11 +12,18 @@ package omdb;
  */
 public class RequestParams {
 
+    /** El primer año en que se filmó algo (cualquier año anterior es un error de tipeo) */
+    public static final int MIN_YEAR = 1870;
+    /** Cuántos años después del actual se aceptan (hay metrajes anunciados con años de anticipación) */
+    private static final int MAX_YEARS_AHEAD = 10;
+
     private String title;
     private String type;
     private String startYear;
     private String endYear;
     private String id;
+    private String page;
+    private boolean allPages;
 
     public RequestParams() {
 
@@ -20,9 +32,11 @@ public class RequestParams {
     public RequestParams(RequestParams p) {
         this.title = p.getTitle();
         this.type = p.getType();
-        this.startYear = p.getStartYear();
-        this.endYear = p.getEndYear();
+        this.startYear = p.startYear; // Los getters devuelven null según haya año o rango, hay que copiar los campos
+        this.endYear = p.endYear;
         this.id = p.getId();
+        this.page = p.getPage();
+        this.allPages = p.isAllPages();
     }
 
     public void setTitle(String title) {
@@ -43,10 +57,37 @@ public class RequestParams {
         this.endYear = maxYear;
     }
 
+    /**
+     * Un rango de años fuera de lo razonable puede costar miles de queries (o agotar la memoria planeándolas),
+     * así que hay que validarlo antes de setearlo si viene de afuera
+     * @return true si ambos son años entre {@link #MIN_YEAR MIN_YEAR} y el actual más 10, y el primero no es
+     * posterior al segundo
+     */
+    public static boolean isValidYearRange(String minYear, String maxYear) {
+
+        if (! StringUtils.isInteger(minYear) || ! StringUtils.isInteger(maxYear)) return false;
+        int from = Integer.parseInt(minYear), to = Integer.parseInt(maxYear);
+        return from >= MIN_YEAR && from <= to && to <= Year.now().getValue() + MAX_YEARS_AHEAD;
+    }
+
     public void setId(String id) {
         this.id = id;
     }
 
+    /**
+     * @param page número de página de resultados a pedir (la API devuelve 10 resultados por página)
+     */
+    public void setPage(String page) {
+        this.page = page;
+    }
+
+    /**
+     * @param allPages si es true, al buscar se piden todas las páginas de resultados y no sólo la primera
+     */
+    public void setAllPages(boolean allPages) {
+        this.allPages = allPages;
+    }
+
     /**
      * Setea todos los campos a null
      */
@@ -56,6 +97,32 @@ public class RequestParams {
         startYear = null;
         endYear = null;
         id = null;
+        page = null;
+        allPages = false;
+    }
+
+    /**
+     * Devuelve una representación canónica de los parámetros: dos objetos que producirían la misma query
+     * (por ejemplo "Batman" y "batman", o "star_wars" y "star wars") tienen la misma representación.
+     * Sirve como clave para cachear resultados.
+     * @return un String que identifica la query
+     */
+    public String toCanonicalString() {
+
+        StringBuilder sb = new StringBuilder();
+        if (title != null)
+            sb.append("t=").append(title.replace('_', ' ').trim().toLowerCase(Locale.ROOT)).append('|');
+        if (id != null)
+            sb.append("i=").append(id.trim().toLowerCase(Locale.ROOT)).append('|');
+        if (type != null)
+            sb.append("type=").append(type).append('|');
+        if (startYear != null)
+            sb.append(endYear == null ? "y=" + startYear : "r=" + startYear + "-" + endYear).append('|');
+        if (page != null)
+            sb.append("page=").append(page).append('|');
+        if (allPages)
+            sb.append("all|");
+        return sb.toString();
     }
 
     public String getTitle() {
@@ -88,4 +155,12 @@ public class RequestParams {
         return id;
     }
 
+    public String getPage() {
+        return page;
+    }
+
+    public boolean isAllPages() {
+        return allPages;
+    }
+
 }
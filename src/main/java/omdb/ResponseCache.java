@@ -0,0 +1,156 @@
+package omdb;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché en memoria de respuestas ya procesadas, para no volver a pedirle a la API (ni volver a parsear)
+ * algo que se pidió hace poco. Se descartan las entradas usadas hace más tiempo (LRU) cuando se supera la
+ * cantidad máxima de entradas o el tamaño máximo estimado en bytes, y cada entrada vence pasado su TTL.
+ *
+ * Es thread-safe, todos los métodos están sincronizados (las operaciones son muy cortas, no vale la pena
+ * algo más sofisticado).
+ * @param <V> tipo de los valores guardados
+ */
+public class ResponseCache<V> {
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Duration defaultTtl;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long expirations = 0;
+
+    public ResponseCache(int maxEntries, long maxBytes, Duration defaultTtl) {
+        this(maxEntries, maxBytes, defaultTtl, Clock.systemUTC());
+    }
+
+    /**
+     * @param maxEntries cantidad máxima de entradas (0 deshabilita la caché)
+     * @param maxBytes tamaño máximo estimado de todas las entradas juntas
+     * @param defaultTtl tiempo de vida de las entradas que no especifican uno propio
+     * @param clock reloj con el que se calcula el vencimiento (útil para pruebas)
+     */
+    public ResponseCache(int maxEntries, long maxBytes, Duration defaultTtl, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.defaultTtl = defaultTtl;
+        this.clock = clock;
+    }
+
+    /**
+     * @param key clave de la entrada
+     * @return el valor guardado, o null si no hay ninguno o ya venció
+     */
+    public synchronized V get(String key) {
+
+        Entry<V> e = entries.get(key);
+        if (e == null) {
+            misses++;
+            return null;
+        }
+        if (e.expiresAt <= clock.millis()) {
+            remove(key, e);
+            expirations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return e.value;
+    }
+
+    public void put(String key, V value, long sizeBytes) {
+        put(key, value, sizeBytes, defaultTtl);
+    }
+
+    /**
+     * Guarda un valor, reemplazando el anterior si lo había, y descarta las entradas menos usadas hasta
+     * volver a estar dentro de los límites. Si el valor solo ya es más grande que el límite, no se guarda.
+     * @param key clave de la entrada
+     * @param value valor a guardar
+     * @param sizeBytes tamaño estimado del valor
+     * @param ttl tiempo de vida de la entrada
+     */
+    public synchronized void put(String key, V value, long sizeBytes, Duration ttl) {
+
+        if (maxEntries <= 0 || sizeBytes > maxBytes) return;
+
+        Entry<V> old = entries.remove(key);
+        if (old != null)
+            bytes -= old.sizeBytes;
+
+        entries.put(key, new Entry<>(value, sizeBytes, clock.millis() + ttl.toMillis()));
+        bytes += sizeBytes;
+
+        Iterator<Map.Entry<String, Entry<V>>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            Entry<V> eldest = it.next().getValue();
+            it.remove();
+            bytes -= eldest.sizeBytes;
+            evictions++;
+        }
+    }
+
+    /**
+     * Descarta todas las entradas (no reinicia los contadores)
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void remove(String key, Entry<V> e) {
+        entries.remove(key);
+        bytes -= e.sizeBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return cantidad de entradas descartadas por falta de espacio
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return cantidad de entradas descartadas por haber vencido
+     */
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long sizeBytes;
+        final long expiresAt;
+
+        Entry(V value, long sizeBytes, long expiresAt) {
+            this.value = value;
+            this.sizeBytes = sizeBytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package omdb;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa operaciones idénticas que se piden al mismo tiempo: si llega una operación con la misma clave que
+ * otra que todavía está en curso, no se inicia de nuevo sino que se espera el resultado de la primera.
+ * Una vez terminada se olvida, así que no reemplaza a una caché: sólo evita pedir lo mismo varias veces
+ * en una ráfaga.
+ *
+ * Cada quien recibe su propio future. Cancelarlo no afecta a los demás, la operación compartida se cancela
+ * sólo cuando la cancelan todos los que la esperaban.
+ * @param <K> tipo de la clave
+ * @param <V> tipo del resultado
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Inicia la operación, o se suma a una idéntica que esté en curso.
+     * @param key clave que identifica a la operación
+     * @param task función que inicia la operación y devuelve su resultado futuro (sólo se llama si no hay
+     * una con la misma clave en curso)
+     * @return un future que se completa con el resultado de la operación
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> task) {
+
+        while (true) {
+            Flight<V> created = new Flight<>();
+            Flight<V> flight = inFlight.putIfAbsent(key, created);
+            if (flight == null) {
+                executed.incrementAndGet();
+                start(key, created, task);
+                return created.follow();
+            }
+            if (flight.join()) {
+                coalesced.incrementAndGet();
+                return flight.follow();
+            }
+            // Todos sus interesados la cancelaron justo ahora, se sacará del mapa en cualquier momento
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private void start(K key, Flight<V> flight, Supplier<CompletableFuture<V>> task) {
+
+        CompletableFuture<V> f;
+        try {
+            f = task.get();
+        } catch (RuntimeException e) {
+            f = CompletableFuture.failedFuture(e);
+        }
+        flight.source = f;
+        f.whenComplete((value, error) -> {
+            inFlight.remove(key, flight);
+            if (error != null)
+                flight.shared.completeExceptionally(error);
+            else
+                flight.shared.complete(value);
+        });
+        if (flight.shared.isCancelled())
+            f.cancel(true);
+    }
+
+    /**
+     * @return cantidad de operaciones que se iniciaron realmente
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * @return cantidad de pedidos que se sumaron a una operación en curso en lugar de iniciar otra
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return cantidad de operaciones en curso en este momento
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Una operación en curso y la cantidad de interesados que todavía esperan su resultado
+     */
+    private static class Flight<V> {
+
+        final CompletableFuture<V> shared = new CompletableFuture<>();
+        volatile CompletableFuture<V> source;
+        int waiters = 1; // quien la inicia
+
+        synchronized boolean join() {
+            if (waiters == 0) return false;
+            waiters++;
+            return true;
+        }
+
+        synchronized boolean leave() {
+            return --waiters == 0;
+        }
+
+        CompletableFuture<V> follow() {
+
+            CompletableFuture<V> mine = shared.thenApply(v -> v);
+            mine.whenComplete((value, error) -> {
+                if (mine.isCancelled() && leave()) {
+                    shared.cancel(true);
+                    CompletableFuture<V> s = source;
+                    if (s != null)
+                        s.cancel(true);
+                }
+            });
+            return mine;
+        }
+    }
+}
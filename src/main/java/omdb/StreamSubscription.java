@@ -0,0 +1,135 @@
+package omdb;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suscripción de un {@link Flow.Subscriber Subscriber} a un flujo de resultados que llegan de a tandas
+ * (por ejemplo una por cada año de una búsqueda). Las tandas se encolan y se entregan sólo a medida que el
+ * suscriptor las pide ({@link #request request()}), desde un único hilo a la vez, como exige la
+ * especificación de Flow.
+ *
+ * Quien produce los resultados nunca se bloquea: {@link #emit emit()} sólo encola, así que se puede llamar
+ * desde los callbacks del cliente HTTP. Cancelar la suscripción cancela las peticiones que falten.
+ */
+final class StreamSubscription<T> implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super T> subscriber;
+    private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile List<? extends CompletableFuture<?>> sources = List.of();
+    private final AtomicBoolean finished = new AtomicBoolean();
+    private volatile boolean done = false;
+    private volatile Throwable error = null;
+    private volatile boolean cancelled = false;
+    private boolean terminated = false; // Sólo se lee y escribe dentro de drain()
+
+    StreamSubscription(Flow.Subscriber<? super T> subscriber) {
+        this.subscriber = subscriber;
+    }
+
+    /**
+     * @param sources operaciones que producen los resultados, para cancelarlas si se cancela la suscripción
+     */
+    void setSources(List<? extends CompletableFuture<?>> sources) {
+        this.sources = sources;
+        if (cancelled)
+            sources.forEach(f -> f.cancel(true));
+    }
+
+    /**
+     * Encola resultados para entregarlos cuando el suscriptor los pida
+     */
+    void emit(Collection<? extends T> items) {
+        if (cancelled || finished.get()) return;
+        queue.addAll(items);
+        drain();
+    }
+
+    /**
+     * Indica que no hay más resultados: se completa el flujo una vez entregados los encolados. Si ya se
+     * había indicado el final (o un error), no hace nada.
+     */
+    void complete() {
+        if (! finished.compareAndSet(false, true)) return;
+        done = true;
+        drain();
+    }
+
+    /**
+     * Indica que falló la operación: se informa el error una vez entregados los resultados encolados. Si ya
+     * se había indicado el final (o otro error), no hace nada.
+     */
+    void fail(Throwable t) {
+        if (! finished.compareAndSet(false, true)) return;
+        error = t;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+
+        if (n <= 0) {
+            // Primero el error, así no lo tapa el de cancelar las operaciones
+            queue.clear();
+            fail(new IllegalArgumentException("Hay que pedir al menos un elemento (regla 3.9 de Reactive Streams)"));
+            sources.forEach(f -> f.cancel(true));
+            return;
+        }
+        long current, next;
+        do {
+            current = demand.get();
+            if (current == Long.MAX_VALUE) break;
+            next = current + n;
+            if (next < 0) next = Long.MAX_VALUE;
+        } while (! demand.compareAndSet(current, next));
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+        sources.forEach(f -> f.cancel(true));
+    }
+
+    /**
+     * Entrega lo que se pueda. Si otro hilo ya está entregando, le avisa que vuelva a revisar y sale.
+     */
+    private void drain() {
+
+        if (wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        do {
+            while (! terminated && ! cancelled) {
+                if (demand.get() > 0) {
+                    T item = queue.poll();
+                    if (item != null) {
+                        if (demand.get() != Long.MAX_VALUE)
+                            demand.decrementAndGet();
+                        subscriber.onNext(item);
+                        continue;
+                    }
+                }
+                if (done && queue.isEmpty()) {
+                    terminated = true;
+                    if (error != null)
+                        subscriber.onError(error);
+                    else
+                        subscriber.onComplete();
+                }
+                break;
+            }
+            if (cancelled) queue.clear();
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
@@ -0,0 +1,69 @@
+package omdb;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Balde de fichas para limitar la tasa de peticiones: se generan fichas a una tasa fija hasta un máximo
+ * (la ráfaga permitida), y cada petición consume una. Si no hay fichas, la petición tiene que esperar a
+ * que se genere la siguiente.
+ *
+ * No bloquea: {@link #reserve reserve()} reserva la ficha y devuelve cuánto hay que esperar para usarla,
+ * quien la pide decide cómo esperar.
+ */
+public class TokenBucket {
+
+    private final double permitsPerSecond;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * @param permitsPerSecond fichas que se generan por segundo
+     * @param burst cantidad máxima de fichas acumuladas (el balde arranca lleno)
+     * @param nanoClock reloj en nanosegundos (útil para pruebas)
+     */
+    public TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst < 1)
+            throw new IllegalArgumentException("La tasa debe ser positiva y la ráfaga al menos 1");
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Reserva una ficha. Las fichas pueden quedar "en negativo": la siguiente reserva tendrá que esperar
+     * más, así las peticiones que esperan se reparten a la tasa configurada en lugar de salir todas juntas.
+     * @return nanosegundos a esperar antes de usar la ficha (0 si se puede usar ya)
+     */
+    public synchronized long reserve() {
+
+        refill();
+        tokens -= 1;
+        if (tokens >= 0) return 0;
+        return (long) (-tokens / permitsPerSecond * 1_000_000_000L);
+    }
+
+    /**
+     * Devuelve una ficha reservada que no se llegó a usar (por ejemplo porque se canceló la petición
+     * mientras esperaba), así no demora a las siguientes
+     */
+    public synchronized void refund() {
+
+        refill();
+        tokens = Math.min(burst, tokens + 1);
+    }
+
+    private void refill() {
+
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * permitsPerSecond);
+        lastRefill = now;
+    }
+}
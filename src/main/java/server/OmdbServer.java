@@ -0,0 +1,276 @@
+package server;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import moviedata.MovieData;
+import omdb.OmdbClient;
+import omdb.OmdbException;
+import omdb.QuotaExceededException;
+import omdb.RequestParams;
+import utils.StringUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servidor HTTP que expone las búsquedas de {@link OmdbClient OmdbClient} a otros usuarios, así todos
+ * comparten la misma clave de la API y la misma caché. Responde en Json:
+ *  - GET /search?s=título[&amp;type=tipo][&amp;y=año | &amp;y=desde-hasta][&amp;all=true]: búsqueda por
+ *    título, con las mismas opciones que el comando buscar de la consola
+ *  - GET /title/{imdbID}: detalles de un metraje
+ *
+ * Las conexiones las atiende el servidor HTTP del JDK, que las mantiene abiertas entre peticiones
+ * (keep-alive) sin ocupar un hilo por conexión. Las peticiones se procesan en un pool de hilos con una
+ * cola acotada: si está llena se responde 503 enseguida, en lugar de acumular peticiones que de todos
+ * modos van a tardar demasiado.
+ */
+public class OmdbServer {
+
+    private static final List<String> tipos = List.of("series", "movie", "episode");
+
+    private final OmdbClient client;
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param client cliente con el que se hacen las consultas (no se cierra al detener el servidor)
+     * @param address dirección donde escuchar (con puerto 0 se elige uno libre)
+     * @param maxThreads cantidad de peticiones que se procesan al mismo tiempo
+     * @param queueCapacity cantidad de peticiones que pueden esperar a que se libere un hilo
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public OmdbServer(OmdbClient client, InetSocketAddress address, int maxThreads, int queueCapacity)
+            throws IOException {
+
+        // Sin esto las respuestas chicas se demoran en conexiones keep-alive (algoritmo de Nagle)
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+
+        this.client = client;
+        AtomicInteger count = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> new Thread(r, "omdb-server-" + count.incrementAndGet()));
+        this.workers.allowCoreThreadTimeOut(true);
+        this.server = HttpServer.create(address, 1024);
+        // El hilo del servidor sólo pasa la petición al pool (o la rechaza), nunca espera a la API
+        this.server.createContext("/", this::dispatch);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Deja de aceptar conexiones y espera a que terminen las peticiones en curso
+     * @param timeoutSeconds tiempo máximo de espera, pasado ese tiempo se cortan las que falten
+     */
+    public void stop(int timeoutSeconds) {
+
+        // stop() espera a que terminen los intercambios en curso, incluidos los que están en el pool
+        server.stop(timeoutSeconds);
+        workers.shutdown();
+        try {
+            if (! workers.awaitTermination(timeoutSeconds, TimeUnit.SECONDS))
+                workers.shutdownNow();
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return dirección donde escucha el servidor
+     */
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    /**
+     * @return cantidad de peticiones atendidas (sin contar las rechazadas)
+     */
+    public long getHandled() {
+        return handled.get();
+    }
+
+    /**
+     * @return cantidad de peticiones rechazadas porque la cola estaba llena
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private void dispatch(HttpExchange exchange) {
+
+        try {
+            workers.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respondError(exchange, 503, "Servidor saturado, reintentar más tarde");
+        }
+    }
+
+    private void handle(HttpExchange exchange) {
+
+        handled.incrementAndGet();
+        try {
+            if (! exchange.getRequestMethod().equals("GET") && ! exchange.getRequestMethod().equals("HEAD")) {
+                exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+                respondError(exchange, 405, "Método no permitido");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/search"))
+                search(exchange);
+            else if (path.startsWith("/title/"))
+                title(exchange, path.substring("/title/".length()));
+            else
+                respondError(exchange, 404, "No existe " + path);
+        } catch (QuotaExceededException e) {
+            respondError(exchange, 429, e.getMessage());
+        } catch (OmdbException e) {
+            respondError(exchange, 502, e.getMessage());
+        } catch (IOException e) {
+            respondError(exchange, 502, "Error al consultar la API");
+        } catch (InterruptedException e) {
+            respondError(exchange, 503, "El servidor se está deteniendo");
+            Thread.currentThread().interrupt();
+        } catch (URISyntaxException | RuntimeException e) {
+            respondError(exchange, 500, "Error interno");
+        }
+    }
+
+    private void search(HttpExchange exchange) throws IOException, InterruptedException, URISyntaxException {
+
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        RequestParams params = new RequestParams();
+
+        String title = query.get("s");
+        if (title == null || title.isBlank()) {
+            respondError(exchange, 400, "Falta el título (parámetro s)");
+            return;
+        }
+        params.setTitle(title.strip().replace(' ', '_'));
+
+        String type = query.get("type");
+        if (type != null) {
+            if (! tipos.contains(type)) {
+                respondError(exchange, 400, "Tipo inválido, puede ser 'series', 'movie' o 'episode'");
+                return;
+            }
+            params.setType(type);
+        }
+
+        String year = query.get("y");
+        if (year != null) {
+            String[] range = year.split("-", 2);
+            if (range.length == 1 && StringUtils.isInteger(range[0])) {
+                params.setYear(range[0]);
+            } else if (range.length == 2 && RequestParams.isValidYearRange(range[0], range[1])) {
+                params.setYearRange(range[0], range[1]);
+            } else {
+                respondError(exchange, 400, "Año inválido, puede ser un año o un rango desde-hasta (desde "
+                        + RequestParams.MIN_YEAR + " hasta dentro de 10 años)");
+                return;
+            }
+        }
+
+        params.setAllPages(Boolean.parseBoolean(query.get("all")));
+
+        MovieData[] movies = client.search(params);
+        long start = System.nanoTime();
+        respond(exchange, 200, json -> {
+            json.beginObject();
+            json.name("count").value(movies.length);
+            json.name("results").beginArray();
+            for (MovieData m : movies)
+                m.writeJson(json);
+            json.endArray();
+            json.endObject();
+        });
+        client.getMetrics().recordRender(System.nanoTime() - start);
+    }
+
+    private void title(HttpExchange exchange, String id) throws IOException, InterruptedException, URISyntaxException {
+
+        if (! id.matches("tt\\d{1,10}")) {
+            respondError(exchange, 400, "ID de imdb inválido");
+            return;
+        }
+        RequestParams params = new RequestParams();
+        params.setId(id);
+        MovieData details = client.getById(params);
+        // La API responde con un objeto sin ID ("Response":"False") si no lo encuentra
+        int status = details.getId() == null ? 404 : 200;
+        long start = System.nanoTime();
+        respond(exchange, status, details::writeJson);
+        client.getMetrics().recordRender(System.nanoTime() - start);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            query.putIfAbsent(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static void respondError(HttpExchange exchange, int status, String message) {
+
+        try {
+            respond(exchange, status, json -> {
+                json.beginObject();
+                json.name("error").value(message);
+                json.endObject();
+            });
+        } catch (IOException e) {
+            exchange.close(); // El cliente cortó la conexión
+        }
+    }
+
+    /**
+     * Escribe la respuesta con su largo exacto, necesario para que la conexión se pueda reutilizar
+     */
+    private static void respond(HttpExchange exchange, int status, JsonBody body) throws IOException {
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(1024);
+        try (JsonWriter json = new JsonWriter(new OutputStreamWriter(buffer, StandardCharsets.UTF_8))) {
+            body.write(json);
+        }
+        byte[] bytes = buffer.toByteArray();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        boolean head = exchange.getRequestMethod().equals("HEAD");
+        exchange.sendResponseHeaders(status, head ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (! head)
+                out.write(bytes);
+        }
+    }
+
+    private interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+}
@@ -0,0 +1,131 @@
+package benchmarks;
+
+import com.google.gson.JsonObject;
+import fakeomdb.FakeOmdbServer;
+import omdb.ClientOptions;
+import omdb.LatencyHistogram;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prueba de carga de {@link OmdbClient OmdbClient} contra {@link FakeOmdbServer FakeOmdbServer}: N sesiones
+ * simuladas (un hilo cada una) hacen búsquedas y pedidos de detalles al azar durante un tiempo fijo, y al
+ * final se informa el throughput, la latencia (p50, p99, p99.9) vista por las sesiones y las métricas del
+ * cliente. Se corre a mano, con opciones clave=valor:
+ *
+ *     mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.LoadGenerator \
+ *         -Dexec.args="sessions=64 duration=30 latency=80 jitter=40 errors=0.01 rate=200 cache=false"
+ *
+ * Opciones (entre paréntesis el valor por defecto):
+ *  - sessions: sesiones concurrentes (16)
+ *  - duration: segundos de medición, después de 3 de calentamiento (10)
+ *  - latency, jitter: latencia del servidor y su variación, en ms (50, 20)
+ *  - errors: fracción de respuestas con error 5xx (0)
+ *  - rate: peticiones por segundo que acepta el servidor, 0 sin límite (0)
+ *  - details: fracción de operaciones que piden detalles, el resto son búsquedas (0.5)
+ *  - cache: si el cliente usa su caché en memoria (false, así cada operación llega al servidor)
+ *  - concurrency, clientRate: límites del cliente (maxConcurrentRequests 64, rateLimitPerSecond 0)
+ */
+public class LoadGenerator {
+
+    private static final int WARMUP_SECONDS = 3;
+
+    public static void main(String[] args) throws Exception {
+
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) opts.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int sessions = Integer.parseInt(opts.getOrDefault("sessions", "16"));
+        int duration = Integer.parseInt(opts.getOrDefault("duration", "10"));
+        double detailRatio = Double.parseDouble(opts.getOrDefault("details", "0.5"));
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.setLatency(Duration.ofMillis(Long.parseLong(opts.getOrDefault("latency", "50"))),
+                    Duration.ofMillis(Long.parseLong(opts.getOrDefault("jitter", "20"))));
+            server.setErrorRate(Double.parseDouble(opts.getOrDefault("errors", "0")));
+            server.setRateLimitPerSecond(Integer.parseInt(opts.getOrDefault("rate", "0")));
+            server.start();
+
+            ClientOptions options = new ClientOptions();
+            options.setMaxThreads(8);
+            options.setMaxConcurrentRequests(Integer.parseInt(opts.getOrDefault("concurrency", "64")));
+            options.setRateLimitPerSecond(Double.parseDouble(opts.getOrDefault("clientRate", "0")));
+            options.setDailyQuota(0);
+            if (! Boolean.parseBoolean(opts.getOrDefault("cache", "false")))
+                options.setCacheMaxEntries(0);
+
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                List<JsonObject> catalog = server.getCatalog();
+                LatencyHistogram latency = new LatencyHistogram();
+                AtomicLong operations = new AtomicLong();
+                AtomicLong failures = new AtomicLong();
+                long warmupEnd = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+                long end = warmupEnd + duration * 1_000_000_000L;
+
+                List<Thread> threads = new ArrayList<>();
+                for (int i = 0; i < sessions; ++i) {
+                    Thread t = new Thread(() -> session(client, catalog, detailRatio, warmupEnd, end,
+                            latency, operations, failures), "session-" + i);
+                    t.start();
+                    threads.add(t);
+                }
+                for (Thread t : threads)
+                    t.join();
+
+                System.out.printf("Sesiones: %d, duración: %ds%n", sessions, duration);
+                System.out.printf("Operaciones: %d (%.1f ops/s), fallidas: %d%n", operations.get(),
+                        operations.get() / (double) duration, failures.get());
+                System.out.printf("Latencia: p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                        latency.getPercentile(50) / 1e6, latency.getPercentile(99) / 1e6,
+                        latency.getPercentile(99.9) / 1e6, latency.getMax() / 1e6);
+                System.out.printf("Servidor: %d peticiones, %d rechazadas (429), %d errores inyectados%n",
+                        server.getRequests(), server.getThrottled(), server.getInjectedErrors());
+                System.out.println("Cliente: " + client.getMetrics().getSnapshot());
+            }
+        }
+    }
+
+    private static void session(OmdbClient client, List<JsonObject> catalog, double detailRatio, long warmupEnd,
+                                long end, LatencyHistogram latency, AtomicLong operations, AtomicLong failures) {
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long now;
+        while ((now = System.nanoTime()) < end) {
+            JsonObject hit = catalog.get(random.nextInt(catalog.size()));
+            RequestParams params = new RequestParams();
+            if (random.nextDouble() < detailRatio) {
+                params.setId(hit.get("imdbID").getAsString());
+            } else {
+                // Una o dos palabras del título, como buscaría alguien
+                String[] words = hit.get("Title").getAsString().replace(":", "").split(" ");
+                int from = random.nextInt(words.length);
+                params.setTitle(words[from] + (from + 1 < words.length && random.nextBoolean() ? "_" + words[from + 1] : ""));
+            }
+            boolean failed = false;
+            try {
+                if (params.getId() != null)
+                    client.getById(params);
+                else
+                    client.search(params);
+            } catch (Exception e) {
+                failed = true;
+            }
+            long elapsed = System.nanoTime() - now;
+            if (now >= warmupEnd) {
+                latency.record(elapsed);
+                operations.incrementAndGet();
+                if (failed) failures.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import moviedata.LazyMovieData;
+import moviedata.MovieData;
+import moviedata.MovieDataComposite;
+import moviedata.MovieDataLeaf;
+import moviedata.SearchHit;
+import omdb.OmdbClient;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * Mide cuánta memoria ocupan muchos resultados retenidos con las clases de siempre
+ * ({@link MovieDataComposite MovieDataComposite} y {@link MovieDataLeaf MovieDataLeaf}) contra las
+ * que retiene el cliente ({@link SearchHit SearchHit} y {@link LazyMovieData LazyMovieData}).
+ * Los valores se copian en cada resultado, como pasaría al parsearlos de respuestas distintas.
+ * Se corre a mano, con un heap fijo y el GC serial para que la medición de memoria usada sea precisa:
+ *
+ *     MAVEN_OPTS="-XX:+UseSerialGC -Xms1g -Xmx1g" mvn test-compile exec:java -Dexec.classpathScope=test \
+ *         -Dexec.mainClass=benchmarks.MemoryFootprintBenchmark
+ */
+public class MemoryFootprintBenchmark {
+
+    private static final int SEARCH_RESULTS = 100_000;
+    private static final int DETAILS = 10_000;
+
+    public static void main(String[] args) throws Exception {
+
+        Method parseSearchPage = OmdbClient.class.getDeclaredMethod("parseSearchPage", byte[].class);
+        parseSearchPage.setAccessible(true);
+        Object page = parseSearchPage.invoke(null,
+                (Object) ParseBenchmark.fixture("search_large.json").getBytes(StandardCharsets.UTF_8));
+        Field results = page.getClass().getDeclaredField("results");
+        results.setAccessible(true);
+
+        @SuppressWarnings("unchecked")
+        SearchHit[] hits = ((Set<MovieData>) results.get(page)).toArray(new SearchHit[0]);
+
+        report("Resultados de búsqueda, MovieDataComposite", SEARCH_RESULTS, i -> {
+            SearchHit h = hits[i % hits.length];
+            MovieDataComposite movie = new MovieDataComposite(copy("\"" + h.getTitle() + "\""));
+            movie.addChild(new MovieDataLeaf(copy("Año"), copy(h.getYear())));
+            movie.addChild(new MovieDataLeaf(copy("Tipo"), copy(h.getType())));
+            movie.addChild(new MovieDataLeaf(copy("imdbID"), copy(h.getId() + i)));
+            return movie;
+        });
+        report("Resultados de búsqueda, SearchHit", SEARCH_RESULTS, i -> {
+            SearchHit h = hits[i % hits.length];
+            return new SearchHit(copy(h.getTitle()), copy(h.getYear()), copy(h.getType()), copy(h.getId() + i));
+        });
+
+        String detail = ParseBenchmark.fixture("detail_small.json");
+        report("Detalles, MovieDataComposite", DETAILS, i -> ParseBenchmark.legacyBuildMovieData(detail, "Detalles"));
+        report("Detalles, LazyMovieData", DETAILS, i -> LazyMovieData.parse(
+                detail.getBytes(StandardCharsets.UTF_8), "Detalles"));
+    }
+
+    private static String copy(String s) {
+        return new String(s.toCharArray());
+    }
+
+    private static void report(String name, int count, IntFunction<MovieData> factory) {
+
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        // Primero una pasada descartable, para que la carga de clases y el JIT no se cuenten en la medición
+        for (int i = 0; i < count; ++i)
+            factory.apply(i);
+        MovieData[] retained = new MovieData[count];
+        long before = usedAfterGc(memory);
+        for (int i = 0; i < count; ++i)
+            retained[i] = factory.apply(i);
+        long after = usedAfterGc(memory);
+
+        System.out.printf("%-45s %8.1f MB  %6d B/resultado%n", name, (after - before) / 1024.0 / 1024.0,
+                (after - before) / count);
+        if (retained[count - 1] == null) System.out.println(); // Mantiene vivo el array hasta acá
+    }
+
+    private static long usedAfterGc(MemoryMXBean memory) {
+
+        for (int i = 0; i < 3; ++i)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
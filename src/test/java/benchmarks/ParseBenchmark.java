@@ -0,0 +1,135 @@
+package benchmarks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import moviedata.LazyMovieData;
+import moviedata.MovieData;
+import moviedata.MovieDataComposite;
+import moviedata.MovieDataLeaf;
+import omdb.OmdbClient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+
+/**
+ * Compara el parseo de respuestas de la API tal como lo hace el cliente (las búsquedas con el parser de
+ * {@link OmdbClient OmdbClient}, en una sola pasada con JsonReader, y los detalles con el diferido de
+ * {@link LazyMovieData LazyMovieData}, ambos desde los bytes de la respuesta) contra el parser anterior
+ * (árbol de Gson, que para cada objeto anidado se volvía a serializar y parsear), usando las respuestas
+ * grabadas en src/test/resources/fixtures. Informa el tiempo y los bytes alocados por operación. Se corre a
+ * mano:
+ *
+ *     mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.ParseBenchmark
+ */
+public class ParseBenchmark {
+
+    private static final int WARMUP = 2_000;
+    private static final int ITERATIONS = 5_000;
+
+    /** Para que el JIT no descarte el resultado de las operaciones medidas */
+    static volatile Object sink;
+
+    public static void main(String[] args) throws Exception {
+
+        Method parseSearchPage = OmdbClient.class.getDeclaredMethod("parseSearchPage", byte[].class);
+        parseSearchPage.setAccessible(true);
+
+        for (String fixture : new String[]{"detail_small.json", "detail_large.json"}) {
+            String json = fixture(fixture);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            run(fixture + " anterior", () -> legacyBuildMovieData(json, "Detalles"));
+            run(fixture + " actual", () -> LazyMovieData.parse(bytes, "Detalles"));
+        }
+        for (String fixture : new String[]{"search_page.json", "search_large.json"}) {
+            String json = fixture(fixture);
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            run(fixture + " anterior", () -> legacyParseSearchResults(json));
+            run(fixture + " actual", () -> parseSearchPage.invoke(null, (Object) bytes));
+        }
+    }
+
+    static String fixture(String name) throws IOException {
+
+        try (InputStream in = ParseBenchmark.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IOException("No se encontró el fixture " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    static void run(String name, Op op) throws Exception {
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().threadId();
+
+        for (int i = 0; i < WARMUP; ++i)
+            sink = op.run();
+
+        long bytesBefore = threads.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i)
+            sink = op.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(tid) - bytesBefore;
+
+        System.out.printf("%-36s %10.2f us/op %12d B/op%n", name, elapsed / 1000.0 / ITERATIONS,
+                allocated / ITERATIONS);
+    }
+
+    interface Op {
+        Object run() throws Exception;
+    }
+
+    // Implementaciones anteriores, copiadas tal cual para poder comparar
+
+    private static LinkedHashSet<MovieData> legacyParseSearchResults(String json) {
+
+        LinkedHashSet<MovieData> results = new LinkedHashSet<>();
+        JsonArray jsonArr = (JsonArray) JsonParser.parseString(json).getAsJsonObject().get("Search");
+        if (jsonArr == null) return results;
+
+        for (JsonElement elem : jsonArr) {
+            JsonObject obj = elem.getAsJsonObject();
+            MovieDataComposite movie = new MovieDataComposite(obj.get("Title").toString());
+            movie.addChild(new MovieDataLeaf("Año", obj.get("Year").toString().replace("\"", "")));
+            movie.addChild(new MovieDataLeaf("Tipo", obj.get("Type").toString().replace("\"", "")));
+            movie.addChild(new MovieDataLeaf("imdbID", obj.get("imdbID").toString().replace("\"", "")));
+            results.add(movie);
+        }
+        return results;
+    }
+
+    static MovieData legacyBuildMovieData(String json, String name) {
+
+        MovieDataComposite root = new MovieDataComposite(name);
+        JsonObject jsonObj = JsonParser.parseString(json).getAsJsonObject();
+
+        for (String key : jsonObj.keySet()) {
+            JsonElement value = jsonObj.get(key);
+            if (value.isJsonArray()) {
+                MovieDataComposite m = new MovieDataComposite(key);
+                int i = 1;
+                for (JsonElement e : value.getAsJsonArray()) {
+                    // El original fallaba con elementos que no fueran objetos
+                    if (e.isJsonObject())
+                        m.addChild(legacyBuildMovieData(e.toString(), Integer.toString(i)));
+                    i++;
+                }
+                root.addChild(m);
+                continue;
+            }
+            if (value.isJsonObject()) {
+                root.addChild(legacyBuildMovieData(value.toString(), key));
+                continue;
+            }
+            if (value.isJsonPrimitive())
+                root.addChild(new MovieDataLeaf(key, value.toString().replace("\"", "")));
+        }
+        return root;
+    }
+}
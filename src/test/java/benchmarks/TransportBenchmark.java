@@ -0,0 +1,99 @@
+package benchmarks;
+
+import com.sun.net.httpserver.HttpServer;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+/**
+ * Compara la latencia por petición de crear un {@link HttpClient HttpClient} nuevo en cada llamada (como se
+ * hacía antes) contra reutilizar el transporte de {@link OmdbClient OmdbClient}, usando un servidor local
+ * que siempre responde lo mismo. No es un test (no lo ejecuta surefire), se corre a mano:
+ *
+ *     mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=benchmarks.TransportBenchmark
+ */
+public class TransportBenchmark {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1000;
+    private static final byte[] BODY = ("{\"Title\":\"Batman\",\"Year\":\"1989\",\"imdbID\":\"tt0096895\"," +
+            "\"Type\":\"movie\",\"Response\":\"True\"}").getBytes(StandardCharsets.UTF_8);
+
+    public static void main(String[] args) throws Exception {
+
+        // Sin esto el servidor del JDK escribe cabeceras y cuerpo por separado y, con conexiones persistentes,
+        // el algoritmo de Nagle más el ACK retardado agregan ~40ms a cada respuesta
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(BODY);
+            }
+        });
+        server.start();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        // Sin caché (mediría la caché en lugar del transporte), ni límite de tasa ni cuota diaria (frenarían y
+        // después rechazarían las peticiones)
+        ClientOptions options = new ClientOptions();
+        options.setCacheMaxEntries(0);
+        options.setRateLimitPerSecond(0);
+        options.setDailyQuota(0);
+        try (OmdbClient client = new OmdbClient(baseUrl, "APIKEY", options)) {
+            URI uri = new URI(baseUrl + "?apikey=APIKEY&i=tt0096895&");
+            RequestParams params = new RequestParams();
+            params.setId("tt0096895");
+
+            report("HttpClient nuevo por petición", measure(() -> newClientPerRequest(uri)));
+            report("Transporte compartido", measure(() -> client.getById(params)));
+        } finally {
+            server.stop(0);
+            ((java.util.concurrent.ExecutorService) server.getExecutor()).shutdown();
+        }
+    }
+
+    private static void newClientPerRequest(URI uri) throws IOException, InterruptedException {
+
+        HttpRequest getReq = HttpRequest.newBuilder().uri(uri).build();
+        HttpClient client = HttpClient.newHttpClient();
+        client.send(getReq, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static long[] measure(Call call) throws Exception {
+
+        for (int i = 0; i < WARMUP; ++i)
+            call.run();
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; ++i) {
+            long start = System.nanoTime();
+            call.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static void report(String name, long[] samples) {
+
+        double mean = Arrays.stream(samples).average().orElse(0) / 1000.0;
+        System.out.printf("%-32s media %8.1f us   p50 %8.1f us   p99 %8.1f us%n", name, mean,
+                samples[samples.length / 2] / 1000.0, samples[(int) (samples.length * 0.99)] / 1000.0);
+    }
+
+    private interface Call {
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,365 @@
+package fakeomdb;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servidor local que imita a la API de OMDb, para tests y benchmarks que no pueden depender de la API
+ * real (ni gastar su cuota). Responde a los parámetros s, t, i, y, type y page con los datos de
+ * src/test/resources/fixtures: los 1000 resultados de search_large.json son el catálogo, y los detalles de
+ * cada uno se arman a partir de detail_small.json con su título, año, tipo e ID (y un puntaje derivado del ID).
+ *
+ * Se le puede configurar latencia (con jitter), una tasa de errores (500/503) y un límite de peticiones por
+ * segundo (429) y por día ("Request limit reached!", como la API real). Si el cliente lo acepta, responde
+ * comprimido con gzip (o con la codificación que se configure). La latencia no ocupa hilos: la
+ * respuesta se programa para más tarde, así puede simular miles de peticiones lentas en curso.
+ *
+ * Uso:
+ *
+ *     FakeOmdbServer server = new FakeOmdbServer();
+ *     server.setLatency(Duration.ofMillis(50), Duration.ofMillis(20));
+ *     server.start();
+ *     OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY);
+ */
+public class FakeOmdbServer implements AutoCloseable {
+
+    public static final String API_KEY = "fake";
+    private static final int PAGE_SIZE = 10;
+    private static final Gson gson = new Gson();
+
+    private final List<JsonObject> catalog = new ArrayList<>();
+    private final Map<String, String> details = new HashMap<>();
+    private final HttpServer server;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile long latencyNanos = 0;
+    private volatile long jitterNanos = 0;
+    private volatile double errorRate = 0;
+    private volatile int rateLimitPerSecond = 0;
+    private volatile int dailyLimit = 0;
+    private volatile String contentEncoding = "gzip";
+
+    private final AtomicLong currentSecond = new AtomicLong();
+    private final AtomicInteger requestsThisSecond = new AtomicInteger();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+
+    public FakeOmdbServer() throws IOException {
+
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        JsonObject template = JsonParser.parseString(fixture("detail_small.json")).getAsJsonObject();
+        for (JsonElement e : JsonParser.parseString(fixture("search_large.json")).getAsJsonObject()
+                .getAsJsonArray("Search")) {
+            JsonObject hit = e.getAsJsonObject();
+            catalog.add(hit);
+            details.put(hit.get("imdbID").getAsString(), buildDetails(template, hit));
+        }
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(Executors.newFixedThreadPool(4, daemon("fake-omdb")));
+        scheduler = Executors.newScheduledThreadPool(2, daemon("fake-omdb-delay"));
+        server.createContext("/", this::handle);
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static String fixture(String name) throws IOException {
+
+        try (InputStream in = FakeOmdbServer.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) throw new IOException("No se encontró el fixture " + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String buildDetails(JsonObject template, JsonObject hit) {
+
+        JsonObject d = template.deepCopy();
+        String id = hit.get("imdbID").getAsString();
+        d.addProperty("Title", hit.get("Title").getAsString());
+        d.addProperty("Year", hit.get("Year").getAsString());
+        d.addProperty("Type", hit.get("Type").getAsString());
+        d.addProperty("imdbID", id);
+        // Puntaje estable por ID, entre 1.0 y 9.9
+        int h = Math.floorMod(id.hashCode() * 31 + 7, 90);
+        d.addProperty("imdbRating", String.format(Locale.ROOT, "%.1f", 1 + h / 10.0));
+        return gson.toJson(d);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        scheduler.shutdownNow();
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+    }
+
+    /**
+     * @return URL base para pasarle a OmdbClient
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * @param latency demora de cada respuesta
+     * @param jitter variación al azar de la demora, hacia arriba o hacia abajo
+     */
+    public void setLatency(Duration latency, Duration jitter) {
+        this.latencyNanos = latency.toNanos();
+        this.jitterNanos = jitter.toNanos();
+    }
+
+    /**
+     * @param errorRate fracción de las peticiones (entre 0 y 1) que responden 500 o 503
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * @param rateLimitPerSecond peticiones por segundo que se aceptan, las demás responden 429 (0 sin límite)
+     */
+    public void setRateLimitPerSecond(int rateLimitPerSecond) {
+        this.rateLimitPerSecond = rateLimitPerSecond;
+    }
+
+    /**
+     * @param dailyLimit peticiones aceptadas en total, las demás responden "Request limit reached!" (0 sin límite)
+     */
+    public void setDailyLimit(int dailyLimit) {
+        this.dailyLimit = dailyLimit;
+    }
+
+    /**
+     * @param contentEncoding "gzip" o "deflate" para comprimir las respuestas si el cliente acepta esa
+     * codificación, o null para no comprimirlas nunca
+     */
+    public void setContentEncoding(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * @return bytes de cuerpos de respuesta enviados, tal como viajaron (comprimidos o no)
+     */
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getThrottled() {
+        return throttled.get();
+    }
+
+    public long getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    /**
+     * @return los resultados del catálogo, para elegir qué buscar
+     */
+    public List<JsonObject> getCatalog() {
+        return catalog;
+    }
+
+    private void handle(HttpExchange exchange) {
+
+        long n = requests.incrementAndGet();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+        int status;
+        String body;
+        if (! API_KEY.equals(query.get("apikey"))) {
+            status = 401;
+            body = error("No API key provided.");
+        } else if (dailyLimit > 0 && n > dailyLimit) {
+            status = 401;
+            body = error("Request limit reached!");
+        } else if (overRateLimit()) {
+            throttled.incrementAndGet();
+            status = 429;
+            body = error("Too many requests");
+        } else if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            injectedErrors.incrementAndGet();
+            status = ThreadLocalRandom.current().nextBoolean() ? 500 : 503;
+            body = error("Internal error");
+        } else {
+            status = 200;
+            body = answer(query);
+        }
+
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        String encoding = contentEncoding;
+        if (encoding != null && (accepted == null || ! accepted.contains(encoding)))
+            encoding = null;
+        String chosen = encoding;
+
+        long delay = latencyNanos;
+        if (jitterNanos > 0)
+            delay += ThreadLocalRandom.current().nextLong(-jitterNanos, jitterNanos + 1);
+        if (delay <= 0)
+            respond(exchange, status, body, chosen);
+        else
+            scheduler.schedule(() -> respond(exchange, status, body, chosen), delay, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean overRateLimit() {
+
+        int limit = rateLimitPerSecond;
+        if (limit <= 0) return false;
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = currentSecond.get();
+        if (second != current && currentSecond.compareAndSet(current, second))
+            requestsThisSecond.set(0);
+        return requestsThisSecond.incrementAndGet() > limit;
+    }
+
+    private String answer(Map<String, String> query) {
+
+        if (query.containsKey("i")) {
+            String d = details.get(query.get("i"));
+            return d != null ? d : error("Incorrect IMDb ID.");
+        }
+        List<JsonObject> matches = match(query.get("s") != null ? query.get("s") : query.get("t"),
+                query.get("y"), query.get("type"));
+        if (query.containsKey("t"))
+            return matches.isEmpty() ? error("Movie not found!")
+                    : details.get(matches.get(0).get("imdbID").getAsString());
+        if (! query.containsKey("s"))
+            return error("Incorrect IMDb ID.");
+        if (matches.isEmpty())
+            return error("Movie not found!");
+
+        int page = 1;
+        try {
+            page = Integer.parseInt(query.getOrDefault("page", "1"));
+        } catch (NumberFormatException e) {
+            // Igual que la API, se ignora
+        }
+        int from = (page - 1) * PAGE_SIZE;
+        if (page < 1 || from >= matches.size())
+            return error("Movie not found!");
+
+        JsonArray search = new JsonArray();
+        for (JsonObject hit : matches.subList(from, Math.min(from + PAGE_SIZE, matches.size())))
+            search.add(hit);
+        JsonObject result = new JsonObject();
+        result.add("Search", search);
+        result.addProperty("totalResults", Integer.toString(matches.size()));
+        result.addProperty("Response", "True");
+        return gson.toJson(result);
+    }
+
+    /**
+     * Busca en el catálogo igual que la API: el título tiene que contener todas las palabras buscadas
+     */
+    private List<JsonObject> match(String title, String year, String type) {
+
+        List<JsonObject> matches = new ArrayList<>();
+        if (title == null) return matches;
+        String[] words = title.toLowerCase(Locale.ROOT).split("[\\s+_]+");
+        for (JsonObject hit : catalog) {
+            String t = hit.get("Title").getAsString().toLowerCase(Locale.ROOT);
+            boolean ok = true;
+            for (String w : words)
+                ok &= t.contains(w);
+            if (year != null)
+                ok &= hit.get("Year").getAsString().startsWith(year);
+            if (type != null)
+                ok &= hit.get("Type").getAsString().equals(type);
+            if (ok) matches.add(hit);
+        }
+        return matches;
+    }
+
+    private static String error(String message) {
+        return "{\"Response\":\"False\",\"Error\":\"" + message + "\"}";
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            query.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private void respond(HttpExchange exchange, int status, String body, String encoding) {
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (encoding != null) {
+                bytes = compress(bytes, encoding);
+                exchange.getResponseHeaders().set("Content-Encoding", encoding);
+            }
+            bytesSent.addAndGet(bytes.length);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            exchange.close(); // El cliente cortó la conexión
+        }
+    }
+
+    private static byte[] compress(byte[] bytes, String encoding) throws IOException {
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        try (OutputStream out = encoding.equals("gzip") ? new GZIPOutputStream(buffer)
+                : new DeflaterOutputStream(buffer)) {
+            out.write(bytes);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,89 @@
+package maintests;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import main.BatchRunner;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetSocketAddress;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            String fixture = query.contains("s=") ? "search_page.json" : "detail_small.json";
+            byte[] body;
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream("fixtures/" + fixture)) {
+                body = in.readAllBytes();
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRun() throws IOException {
+
+        String commands = """
+                # Comentario
+                buscar batman -y 1989
+                2
+                buscar batman -x
+
+                1
+                99
+                """;
+        StringWriter out = new StringWriter();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+        try (OmdbClient client = new OmdbClient(baseUrl, "key", new ClientOptions())) {
+            BatchRunner runner = new BatchRunner(client, 4);
+            runner.run(new BufferedReader(new StringReader(commands)), out);
+            assertEquals(5, runner.getCommands());
+            assertEquals(2, runner.getErrors());
+        }
+
+        List<JsonObject> lines = out.toString().lines().map(l -> JsonParser.parseString(l).getAsJsonObject()).toList();
+        assertEquals(5, lines.size());
+
+        // Los resultados salen en el orden de los comandos
+        assertEquals("buscar batman -y 1989", lines.get(0).get("command").getAsString());
+        assertEquals(10, lines.get(0).getAsJsonArray("results").size());
+        assertEquals("Batman: Joker", lines.get(0).getAsJsonArray("results").get(1)
+                .getAsJsonObject().get("Title").getAsString());
+
+        assertEquals("2", lines.get(1).get("command").getAsString());
+        assertEquals("Ghost in the Shell", lines.get(1).getAsJsonObject("result").get("Title").getAsString());
+
+        assertEquals("Entrada inválida", lines.get(2).get("error").getAsString());
+        assertTrue(lines.get(3).has("result"));
+        assertTrue(lines.get(4).has("error"));
+    }
+}
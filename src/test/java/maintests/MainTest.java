@@ -26,6 +26,8 @@ class MainTest {
         assertEquals(true, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-t", "series"}}));
         assertEquals(true, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-r", "2004", "2008"}}));
         assertEquals(true, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-t", "movie", "-r", "2004", "2008"}}));
+        assertEquals(true, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-a", "-y", "2004"}}));
+        assertEquals(true, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-o", "votos"}}));
 
         assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar"}}));
         assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"busc"}}));
@@ -33,7 +35,11 @@ class MainTest {
         assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "a", "-r", "abc", "1990"}}));
         assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "a", "-r", "1980", "def"}}));
         assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-r", "2004", "1990"}}));
+        assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-r", "1", "2000000000"}}));
+        assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-r", "1990", "9999"}}));
         assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "a", "-y", "1980", "def"}}));
+        assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-x"}}));
+        assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{"buscar", "abc", "-o", "fecha"}}));
         assertEquals(false, validateInput.invoke(null, new Object[]{new String[]{}}));
     }
     
@@ -91,5 +97,11 @@ class MainTest {
         assertNull(p.getEndYear());
         assertNull(p.getId());
         assertNull(p.getType());
+        assertFalse(p.isAllPages());
+
+        p.reset();
+        setParams.invoke(null, p, new String[]{"buscar", "abc", "-a"});
+        assertEquals("abc", p.getTitle());
+        assertTrue(p.isAllPages());
     }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package moviedatatests;
+
+import moviedata.CompactMovieData;
+import moviedata.KeyDictionary;
+import moviedata.MovieData;
+import moviedata.MovieDataComposite;
+import moviedata.MovieDataLeaf;
+import moviedata.SearchHit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactMovieDataTest {
+
+    @Test
+    void testSameOutputAsComposite() {
+
+        MovieDataComposite o = new MovieDataComposite("0");
+        MovieDataComposite c2 = new MovieDataComposite("c2");
+        o.addChild(new MovieDataLeaf("c1", "1"));
+        o.addChild(c2);
+        c2.addChild(new MovieDataLeaf("c3", "3"));
+        c2.addChild(new MovieDataLeaf("imdbID", "999"));
+
+        MovieData compact = new CompactMovieData.Builder("0")
+                .add("c1", "1")
+                .add("c2", new CompactMovieData.Builder("c2").add("c3", "3").add("imdbID", "999").build())
+                .build();
+
+        assertEquals(o.toString(), compact.toString());
+        assertEquals(o.toStringIndented(2), compact.toStringIndented(2));
+        assertEquals("999", compact.getId());
+        assertEquals(o, compact);
+        assertEquals(o.hashCode(), compact.hashCode());
+    }
+
+    @Test
+    void testSearchHitSameOutputAsComposite() {
+
+        MovieDataComposite movie = new MovieDataComposite("\"Batman\"");
+        movie.addChild(new MovieDataLeaf("Año", "1989"));
+        movie.addChild(new MovieDataLeaf("Tipo", "movie"));
+        movie.addChild(new MovieDataLeaf("imdbID", "tt0096895"));
+
+        SearchHit hit = new SearchHit("Batman", "1989", "movie", "tt0096895");
+
+        assertEquals(movie.toString(), hit.toString());
+        assertEquals(movie, hit);
+        assertEquals(movie.hashCode(), hit.hashCode());
+    }
+
+    @Test
+    void testKeysAreShared() {
+
+        String key = new String("Director");
+        assertSame(KeyDictionary.intern("Director"), KeyDictionary.intern(key));
+        String longKey = "x".repeat(100);
+        assertSame(longKey, KeyDictionary.intern(longKey));
+    }
+}
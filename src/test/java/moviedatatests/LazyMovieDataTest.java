@@ -0,0 +1,108 @@
+package moviedatatests;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import moviedata.CompactMovieData;
+import moviedata.LazyMovieData;
+import moviedata.MovieData;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyMovieDataTest {
+
+    /**
+     * Referencia para comparar: arma el árbol completo de {@link CompactMovieData CompactMovieData} a partir
+     * del árbol de Gson
+     */
+    private static MovieData eager(JsonObject obj, String name) {
+
+        CompactMovieData.Builder node = new CompactMovieData.Builder(name);
+        for (Map.Entry<String, JsonElement> e : obj.entrySet())
+            add(node, e.getKey(), e.getValue());
+        return node.build();
+    }
+
+    private static void add(CompactMovieData.Builder parent, String name, JsonElement value) {
+
+        if (value.isJsonObject()) {
+            parent.add(name, eager(value.getAsJsonObject(), name));
+        } else if (value.isJsonArray()) {
+            CompactMovieData.Builder array = new CompactMovieData.Builder(name);
+            int i = 1;
+            for (JsonElement e : value.getAsJsonArray())
+                add(array, Integer.toString(i++), e);
+            parent.add(name, array.build());
+        } else if (value.isJsonPrimitive()) {
+            parent.add(name, value.getAsString());
+        }
+    }
+
+    private static String json(MovieData m) throws IOException {
+
+        StringWriter out = new StringWriter();
+        m.writeJson(new JsonWriter(out));
+        return out.toString();
+    }
+
+    private static String fixture(String name) throws IOException {
+
+        try (InputStream in = LazyMovieDataTest.class.getResourceAsStream("/fixtures/" + name)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testSameAsEager() throws Exception {
+
+        String[] cases = {
+                fixture("detail_small.json"),
+                fixture("detail_large.json"),
+                "{\"Title\":\"Say \\\"hi\\\" \\u00e9\\n\",\"Votes\":1234,\"Rated\":null,\"Tags\":[\"a\",null,[\"b\"]]," +
+                        "\"Box\":{\"Total\":true,\"By\":{\"US\":\"$1\",\"imdbID\":\"tt9\"}},\"imdbID\":\"tt1\"}",
+                " { } "
+        };
+        for (String json : cases) {
+            MovieData expected = eager(JsonParser.parseString(json).getAsJsonObject(), "Detalles");
+            LazyMovieData lazy = LazyMovieData.parse(json.getBytes(StandardCharsets.UTF_8), "Detalles");
+            assertEquals(expected.toString(), lazy.toString());
+            assertEquals(expected.toStringIndented(2), lazy.toStringIndented(2));
+            assertEquals(json(expected), json(lazy));
+            assertEquals(expected.getId(), lazy.getId());
+            assertEquals(expected.getValue("Title"), lazy.getValue("Title"));
+        }
+    }
+
+    @Test
+    void testValues() {
+
+        String json = "{\"Title\":\"Say \\\"hi\\\"\",\"Votes\":1234,\"Rated\":null,\"Ratings\":[{\"Value\":\"7\"}]," +
+                "\"Ti\\u0074le2\":\"x\"}";
+        LazyMovieData m = LazyMovieData.parse(json.getBytes(StandardCharsets.UTF_8), "Detalles");
+        assertEquals("Say \"hi\"", m.getValue("Title"));
+        assertEquals("1234", m.getValue("Votes"));
+        assertEquals("x", m.getValue("Title2"));
+        assertNull(m.getValue("Rated"));
+        assertNull(m.getValue("Ratings"));
+        assertNull(m.getValue("Value"));
+        assertNull(m.getId());
+        assertEquals(json.length(), m.getByteSize());
+    }
+
+    @Test
+    void testMalformed() {
+
+        for (String json : new String[]{"", "[1]", "{\"a\":\"b\"", "{\"a\" \"b\"}", "{\"a\":\"b\"} x", "{\"a\":}"})
+            assertThrows(JsonParseException.class,
+                    () -> LazyMovieData.parse(json.getBytes(StandardCharsets.UTF_8), "Detalles"), json);
+    }
+}
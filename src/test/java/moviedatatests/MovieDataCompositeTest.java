@@ -4,6 +4,9 @@ import moviedata.MovieDataComposite;
 import moviedata.MovieDataLeaf;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class MovieDataCompositeTest {
@@ -45,4 +48,29 @@ class MovieDataCompositeTest {
         String text = "0:\n\tc1: 1\n\tc2:\n\t\tc3: 3\n\t\timdbID: 999\n";
         assertEquals(text, o.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRender() throws IOException {
+
+        MovieDataComposite o = new MovieDataComposite("0");
+        MovieDataComposite parent = o;
+        for (int i = 1; i <= 20; ++i) { // Más profundo que los prefijos precalculados
+            MovieDataComposite c = new MovieDataComposite("c" + i);
+            parent.addChild(new MovieDataLeaf("hoja", Integer.toString(i)));
+            parent.addChild(c);
+            parent = c;
+        }
+
+        StringBuilder expected = new StringBuilder("0:\n");
+        for (int i = 1; i <= 20; ++i) {
+            expected.append("\t".repeat(i)).append("hoja: ").append(i).append('\n');
+            expected.append("\t".repeat(i)).append('c').append(i).append(":\n");
+        }
+
+        StringWriter out = new StringWriter();
+        o.render(out, 0);
+        assertEquals(expected.toString(), out.toString());
+        assertEquals(expected.toString(), o.toString());
+        assertEquals("\t\thoja: 20\n", new MovieDataLeaf("hoja", "20").toStringIndented(2));
+    }
+}
@@ -0,0 +1,70 @@
+package moviedatatests;
+
+import moviedata.MovieData;
+import moviedata.MovieDataComposite;
+import moviedata.MovieDataIndex;
+import moviedata.MovieDataLeaf;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MovieDataIndexTest {
+
+    private static MovieDataComposite movie(String title, String id) {
+
+        MovieDataComposite m = new MovieDataComposite(title);
+        m.addChild(new MovieDataLeaf("Año", "2000"));
+        if (id != null)
+            m.addChild(new MovieDataLeaf("imdbID", id));
+        return m;
+    }
+
+    @Test
+    void testHashCodeRemovesDuplicatesInSets() {
+
+        MovieData a = movie("a", "tt1");
+        MovieData aBis = movie("a (otra vez)", "tt1");
+        MovieData b = movie("b", "tt2");
+
+        assertEquals(a, aBis);
+        assertEquals(a.hashCode(), aBis.hashCode());
+
+        Set<MovieData> set = new LinkedHashSet<>(List.of(a, b));
+        assertFalse(set.add(aBis));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void testIndex() {
+
+        MovieData a = movie("a", "tt1");
+        MovieData b = movie("b", "tt2");
+        MovieData sinId1 = movie("sin id", null);
+        MovieData sinId2 = movie("sin id", null);
+
+        MovieDataIndex index = new MovieDataIndex();
+        assertTrue(index.add(a));
+        assertEquals(2, index.addAll(List.of(sinId1, movie("a (otra vez)", "tt1"), b)));
+        assertTrue(index.add(sinId2));
+        assertFalse(index.add(movie("b (otra vez)", "tt2")));
+
+        assertArrayEquals(new MovieData[]{a, sinId1, b, sinId2}, index.toArray());
+        assertSame(b, index.get("tt2"));
+        assertTrue(index.contains("tt1"));
+        assertFalse(index.contains("tt3"));
+    }
+
+    @Test
+    void testIdIsResolvedAgainAfterAddingChildren() {
+
+        MovieDataComposite m = movie("a", null);
+        assertNull(m.getId());
+        m.addChild(new MovieDataLeaf("imdbID", "tt9"));
+        assertEquals("tt9", m.getId());
+        assertEquals("tt9".hashCode(), m.hashCode());
+    }
+}
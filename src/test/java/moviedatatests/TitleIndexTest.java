@@ -0,0 +1,100 @@
+package moviedatatests;
+
+import fakeomdb.FakeOmdbServer;
+import moviedata.CompactMovieData;
+import moviedata.MovieData;
+import moviedata.SearchHit;
+import moviedata.TitleIndex;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TitleIndexTest {
+
+    private static TitleIndex sample() {
+
+        TitleIndex index = new TitleIndex(100);
+        index.add(new SearchHit("Interstellar", "2014", "movie", "tt0816692"));
+        index.add(new SearchHit("Star Wars", "1977", "movie", "tt0076759"));
+        index.add(new SearchHit("Star Wars: The Clone Wars", "2008–2020", "series", "tt0458290"));
+        index.add(new SearchHit("Amélie", "2001", "movie", "tt0211915"));
+        index.add(new CompactMovieData.Builder("Detalles")
+                .add("Title", "The Dark Knight").add("Year", "2008").add("Type", "movie").add("imdbID", "tt0468569")
+                .build());
+        return index;
+    }
+
+    private static String ids(List<SearchHit> hits) {
+
+        StringBuilder sb = new StringBuilder();
+        for (SearchHit h : hits)
+            sb.append(h.getId()).append(' ');
+        return sb.toString().trim();
+    }
+
+    @Test
+    void testPrefixAndFilters() {
+
+        TitleIndex index = sample();
+        assertEquals(5, index.size());
+        assertFalse(index.add(new SearchHit("Otro", "2000", "movie", "tt0816692"))); // ID repetido
+
+        assertEquals("tt0076759 tt0458290", ids(index.search("star wa", null, null, null)));
+        assertEquals("tt0458290", ids(index.search("star wars", "series", null, null)));
+        assertEquals("tt0458290", ids(index.search("wars", null, 2000, 2010)));
+        assertEquals("tt0468569", ids(index.search("DARK knight", null, 2008, 2008)));
+        assertEquals("tt0211915", ids(index.search("amelie", null, null, null)));
+        assertEquals("", ids(index.search("star trek", null, null, null)));
+    }
+
+    @Test
+    void testFuzzy() {
+
+        TitleIndex index = sample();
+        assertEquals("tt0816692", ids(index.search("interstelar", null, null, null)));
+        assertEquals("tt0816692", ids(index.search("intresteller", null, null, null)));
+        assertEquals("tt0468569", ids(index.search("dark knigth", null, null, null)));
+        assertEquals("", ids(index.search("interzzzzzar", null, null, null)));
+        assertEquals(4, index.getFuzzyQueries());
+    }
+
+    @Test
+    void testClientFallback() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+            ClientOptions options = new ClientOptions();
+            options.setRateLimitPerSecond(0);
+            options.setCacheMaxEntries(0);
+
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                RequestParams params = new RequestParams();
+                params.setTitle("batman");
+                MovieData[] movies = client.search(params);
+                assertEquals(movies.length, client.getTitleIndex().size());
+
+                // Con un error de tipeo la API no encuentra nada, pero el índice sí
+                String title = ((SearchHit) movies[0]).getTitle();
+                params.setTitle(title.replace("Batman", "Batmna"));
+                MovieData[] fuzzy = client.search(params);
+                assertTrue(fuzzy.length > 0);
+                assertEquals(movies[0].getId(), fuzzy[0].getId());
+
+                // Con FIRST ni siquiera se consulta la API
+                options.setLocalSearch(ClientOptions.LocalSearch.FIRST);
+                try (OmdbClient local = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                    params.setTitle("batman");
+                    local.search(params);
+                    long requests = server.getRequests();
+                    assertEquals(movies.length, local.search(params).length);
+                    assertEquals(requests, server.getRequests());
+                }
+            }
+        }
+    }
+}
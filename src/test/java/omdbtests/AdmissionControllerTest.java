@@ -0,0 +1,169 @@
+package omdbtests;
+
+import omdb.AdmissionController;
+import omdb.ClientOptions;
+import omdb.QuotaExceededException;
+import omdb.TokenBucket;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControllerTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private static ClientOptions options() {
+
+        ClientOptions options = new ClientOptions();
+        options.setRateLimitPerSecond(0);
+        options.setMaxConcurrentRequests(8);
+        options.setRetryBaseDelay(Duration.ofMillis(1));
+        options.setRetryMaxDelay(Duration.ofMillis(5));
+        return options;
+    }
+
+    @Test
+    void testRetryAndBackoff() throws Exception {
+
+        AdmissionController admission = new AdmissionController(options(), scheduler);
+        AtomicInteger calls = new AtomicInteger();
+
+        // Dos 429 y después una respuesta exitosa
+        HttpResponse<String> response = admission.submit(() -> CompletableFuture.completedFuture(
+                new FakeResponse(calls.incrementAndGet() <= 2 ? 429 : 200, "ok"))).get();
+
+        assertEquals(200, response.statusCode());
+        assertEquals(3, calls.get());
+        assertEquals(2, admission.getRetries());
+        assertEquals(2, admission.getThrottled());
+        assertTrue(admission.getConcurrencyLimit() < 8);
+
+        // Si se agotan los reintentos se devuelve la última respuesta
+        calls.set(0);
+        response = admission.submit(() -> CompletableFuture.completedFuture(
+                new FakeResponse(500 + calls.incrementAndGet(), "error"))).get();
+        assertEquals(504, response.statusCode());
+        assertEquals(4, calls.get());
+    }
+
+    @Test
+    void testQuota() throws Exception {
+
+        ClientOptions options = options();
+        options.setDailyQuota(2);
+        AdmissionController admission = new AdmissionController(options, scheduler);
+
+        for (int i = 0; i < 2; ++i)
+            assertEquals(200, admission.submit(() -> CompletableFuture.completedFuture(
+                    new FakeResponse(200, "ok"))).get().statusCode());
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> admission.submit(
+                () -> CompletableFuture.completedFuture(new FakeResponse(200, "ok"))).get());
+        assertInstanceOf(QuotaExceededException.class, e.getCause());
+        assertEquals(1, admission.getRefused());
+        assertEquals(2, admission.getQuotaUsed());
+    }
+
+    @Test
+    void testCancelledBeforeSendingGivesBackQuotaAndToken() throws Exception {
+
+        ClientOptions options = options();
+        options.setRateLimitPerSecond(10);
+        options.setRateLimitBurst(1);
+        options.setDailyQuota(100);
+        AdmissionController admission = new AdmissionController(options, scheduler);
+        AtomicInteger calls = new AtomicInteger();
+
+        // La primera sale enseguida, las otras 20 esperan su ficha (hasta 2s) y se cancelan antes de salir
+        admission.submit(() -> CompletableFuture.completedFuture(new FakeResponse(200, "ok"))).get();
+        List<CompletableFuture<HttpResponse<String>>> waiting = new ArrayList<>();
+        for (int i = 0; i < 20; ++i)
+            waiting.add(admission.submit(() -> {
+                calls.incrementAndGet();
+                return CompletableFuture.completedFuture(new FakeResponse(200, "ok"));
+            }));
+        waiting.forEach(f -> f.cancel(true));
+        assertEquals(1, admission.getQuotaUsed());
+
+        // La siguiente no espera detrás de las canceladas
+        long start = System.nanoTime();
+        admission.submit(() -> CompletableFuture.completedFuture(new FakeResponse(200, "ok"))).get();
+        assertTrue(System.nanoTime() - start < 500_000_000L);
+        assertEquals(2, admission.getQuotaUsed());
+        Thread.sleep(200);
+        assertEquals(0, calls.get());
+    }
+
+    @Test
+    void testTokenBucket() {
+
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(10, 2, now::get);
+
+        // La ráfaga sale sin esperar, después una ficha cada 100ms
+        assertEquals(0, bucket.reserve());
+        assertEquals(0, bucket.reserve());
+        assertEquals(100_000_000L, bucket.reserve());
+        assertEquals(200_000_000L, bucket.reserve());
+
+        now.set(1_000_000_000L);
+        assertEquals(0, bucket.reserve());
+    }
+
+    private record FakeResponse(int statusCode, String body) implements HttpResponse<String> {
+
+        @Override
+        public HttpRequest request() {
+            return HttpRequest.newBuilder(URI.create("http://localhost/")).build();
+        }
+
+        @Override
+        public Optional<HttpResponse<String>> previousResponse() {
+            return Optional.empty();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return HttpHeaders.of(Map.<String, List<String>>of(), (k, v) -> true);
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return Optional.empty();
+        }
+
+        @Override
+        public URI uri() {
+            return request().uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return HttpClient.Version.HTTP_1_1;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package omdbtests;
+
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientMetricsTest {
+
+    @Test
+    void testJmx() throws Exception {
+
+        ClientOptions options = new ClientOptions();
+        options.setJmxName("test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("omdb:type=OmdbClient,name=\"test\"");
+
+        try (OmdbClient client = new OmdbClient("http://localhost/", "key", options)) {
+            client.getMetrics().recordRender(2_000_000);
+
+            assertTrue(server.isRegistered(name));
+            assertEquals(0L, server.getAttribute(name, "Requests"));
+            CompositeData render = (CompositeData) server.getAttribute(name, "RenderLatency");
+            assertEquals(1L, render.get("count"));
+            assertEquals(2.0, (double) render.get("maxMillis"), 0.001);
+            assertTrue(((String) server.getAttribute(name, "Snapshot")).contains("render:"));
+        }
+        // Al cerrar el cliente se deja de publicar
+        assertFalse(server.isRegistered(name));
+    }
+}
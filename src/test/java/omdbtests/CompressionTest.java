@@ -0,0 +1,119 @@
+package omdbtests;
+
+import com.sun.net.httpserver.HttpServer;
+import fakeomdb.FakeOmdbServer;
+import moviedata.MovieData;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionTest {
+
+    private static ClientOptions options(boolean compression) {
+
+        ClientOptions options = new ClientOptions();
+        options.setRateLimitPerSecond(0);
+        options.setCompression(compression);
+        return options;
+    }
+
+    private static String[] fetch(FakeOmdbServer server, ClientOptions options) throws Exception {
+
+        try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+            RequestParams params = new RequestParams();
+            params.setTitle("batman");
+            params.setAllPages(true);
+            MovieData[] movies = client.search(params);
+            params = new RequestParams();
+            params.setId(movies[0].getId());
+            String[] result = Arrays.copyOf(Arrays.stream(movies).map(MovieData::getId).toArray(String[]::new),
+                    movies.length + 1);
+            result[movies.length] = client.getById(params).toString();
+            return result;
+        }
+    }
+
+    @Test
+    void testEncodings() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+
+            String[] plain = fetch(server, options(false));
+            long plainBytes = server.getBytesSent();
+            assertTrue(plain.length > 10);
+
+            String[] gzip = fetch(server, options(true));
+            long gzipBytes = server.getBytesSent() - plainBytes;
+            assertArrayEquals(plain, gzip);
+            assertTrue(gzipBytes < plainBytes / 2, gzipBytes + " bytes comprimidos contra " + plainBytes);
+
+            server.setContentEncoding("deflate");
+            assertArrayEquals(plain, fetch(server, options(true)));
+        }
+    }
+
+    @Test
+    void testNonAsciiBody() throws Exception {
+
+        byte[] json = ("{\"Title\":\"Amélie 🎬 ñandú\",\"imdbID\":\"tt0211915\",\"Response\":\"True\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        }
+        byte[] body = buffer.toByteArray();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        });
+        server.start();
+        try (OmdbClient client = new OmdbClient("http://127.0.0.1:" + server.getAddress().getPort() + "/",
+                "APIKEY", options(true))) {
+            RequestParams params = new RequestParams();
+            params.setId("tt0211915");
+            assertTrue(client.getById(params).toString().contains("Amélie 🎬 ñandú"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testEncodingNameIgnoresDefaultLocale() throws Exception {
+
+        Method decode = Class.forName("omdb.BodyDecoder").getDeclaredMethod("decode", byte[].class, String.class);
+        decode.setAccessible(true);
+        byte[] json = "{}".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(json);
+        }
+
+        // En turco "I" pasa a minúscula como "ı" (sin punto)
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            assertArrayEquals(json, (byte[]) decode.invoke(null, buffer.toByteArray(), "X-GZIP"));
+            assertArrayEquals(json, (byte[]) decode.invoke(null, json, "IDENTITY"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+}
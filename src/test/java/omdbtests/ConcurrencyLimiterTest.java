@@ -0,0 +1,52 @@
+package omdbtests;
+
+import omdb.ConcurrencyLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+
+    @Test
+    void testLimitAndOrder() {
+
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2);
+        List<CompletableFuture<Integer>> pending = new ArrayList<>();
+        List<Integer> started = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+
+        for (int i = 0; i < 5; ++i) {
+            int n = i;
+            results.add(limiter.submit(() -> {
+                started.add(n);
+                CompletableFuture<Integer> f = new CompletableFuture<>();
+                pending.add(f);
+                return f;
+            }));
+        }
+
+        assertEquals(List.of(0, 1), started);
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(3, limiter.getQueued());
+
+        pending.get(0).complete(0);
+        assertEquals(List.of(0, 1, 2), started);
+        assertEquals(0, results.get(0).join());
+
+        pending.get(1).completeExceptionally(new RuntimeException("falla"));
+        assertTrue(results.get(1).isCompletedExceptionally());
+        assertEquals(List.of(0, 1, 2, 3), started);
+
+        // Cancelar una operación encolada evita que se inicie
+        results.get(4).cancel(true);
+        pending.get(2).complete(2);
+        pending.get(3).complete(3);
+        assertEquals(List.of(0, 1, 2, 3), started);
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(0, limiter.getQueued());
+    }
+}
@@ -0,0 +1,124 @@
+package omdbtests;
+
+import omdb.DiskCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskCacheTest {
+
+    private static final Duration NEVER = Duration.ofDays(365);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testSurvivesRestart() {
+
+        try (DiskCache cache = new DiskCache(dir, 1 << 20, NEVER, NEVER)) {
+            cache.put("s=batman&y=1989&", bytes("{\"Search\":[]}"));
+            cache.put("i=tt0096895&", bytes("viejo"));
+            cache.put("i=tt0096895&", bytes("nuevo"));
+            assertEquals("nuevo", string(cache.get("i=tt0096895&")));
+        }
+
+        try (DiskCache cache = new DiskCache(dir, 1 << 20, NEVER, NEVER)) {
+            assertEquals("{\"Search\":[]}", string(cache.get("s=batman&y=1989&")));
+            assertEquals("nuevo", string(cache.get("i=tt0096895&")));
+            assertNull(cache.get("s=robin&"));
+            assertEquals(2, cache.size());
+            assertEquals(2, cache.getHits());
+            assertEquals(1, cache.getMisses());
+        }
+    }
+
+    @Test
+    void testTtl() throws InterruptedException {
+
+        try (DiskCache cache = new DiskCache(dir, 1 << 20, NEVER, NEVER)) {
+            cache.put("a", bytes("A"), Duration.ofMillis(1));
+            cache.put("b", bytes("B"));
+            Thread.sleep(5);
+            assertNull(cache.get("a"));
+            assertEquals("B", string(cache.get("b")));
+        }
+    }
+
+    @Test
+    void testCompactionWhenFull() {
+
+        // Cada registro ocupa 16 (cabecera) + 1 (clave) + 100 (valor) bytes, entran 3
+        try (DiskCache cache = new DiskCache(dir, 3 * 117, NEVER, NEVER)) {
+            byte[] value = new byte[100];
+            cache.put("a", value);
+            cache.put("a", value);
+            cache.put("b", value);
+            cache.put("c", value); // No entra, se compacta y se descarta la "a" reemplazada
+            assertEquals(1, cache.getCompactions());
+            assertEquals(3 * 117, cache.getFileSize());
+            assertNotNull(cache.get("a"));
+            assertNotNull(cache.get("b"));
+            assertNotNull(cache.get("c"));
+
+            cache.put("d", value); // No entra aunque se compacte
+            assertNull(cache.get("d"));
+        }
+    }
+
+    @Test
+    void testTruncatedRecordIsDiscarded() throws IOException {
+
+        try (DiskCache cache = new DiskCache(dir, 1 << 20, NEVER, NEVER)) {
+            cache.put("a", bytes("A"));
+        }
+        // Simula un registro a medio escribir
+        Files.write(dir.resolve("omdb-cache.seg"), new byte[]{0, 0, 0, 5, 0}, StandardOpenOption.APPEND);
+
+        try (DiskCache cache = new DiskCache(dir, 1 << 20, NEVER, NEVER)) {
+            assertEquals("A", string(cache.get("a")));
+            cache.put("b", bytes("B"));
+        }
+        try (DiskCache cache = new DiskCache(dir, 1 << 20, NEVER, NEVER)) {
+            assertEquals("A", string(cache.get("a")));
+            assertEquals("B", string(cache.get("b")));
+            assertNull(cache.getError());
+        }
+    }
+
+    @Test
+    void testReadsBetweenWritesDontRemapEachTime() throws IOException {
+
+        long size;
+        try (DiskCache cache = new DiskCache(dir, 1 << 30, NEVER, NEVER)) {
+            byte[] value = new byte[1000];
+            for (int i = 0; i < 2000; ++i) {
+                cache.put("k" + i, value);
+                assertNotNull(cache.get("k" + i));
+            }
+            // 2MB escritos: se vuelve a mapear unas pocas veces y no una por lectura
+            assertTrue(cache.getRemaps() <= 8, "remaps: " + cache.getRemaps());
+            size = cache.getFileSize();
+        }
+        assertEquals(size, Files.size(dir.resolve("omdb-cache.seg")));
+        try (DiskCache cache = new DiskCache(dir, 1 << 30, NEVER, NEVER)) {
+            assertNotNull(cache.get("k1999"));
+            assertEquals(2000, cache.size());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] b) {
+        return b == null ? null : new String(b, StandardCharsets.UTF_8);
+    }
+}
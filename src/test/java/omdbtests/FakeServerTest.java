@@ -0,0 +1,161 @@
+package omdbtests;
+
+import fakeomdb.FakeOmdbServer;
+import moviedata.MovieData;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.QuotaExceededException;
+import omdb.RequestParams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba el cliente completo (transporte, reintentos, paginado) contra {@link FakeOmdbServer FakeOmdbServer}
+ */
+class FakeServerTest {
+
+    private FakeOmdbServer server;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeOmdbServer();
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private static ClientOptions options() {
+
+        ClientOptions options = new ClientOptions();
+        options.setRateLimitPerSecond(0);
+        options.setRetryBaseDelay(Duration.ofMillis(1));
+        options.setRetryMaxDelay(Duration.ofMillis(10));
+        return options;
+    }
+
+    @Test
+    void testSearchAllPages() throws Exception {
+
+        try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+            RequestParams params = new RequestParams();
+            params.setTitle("joker");
+            params.setType("movie");
+            params.setAllPages(true);
+            MovieData[] movies = client.search(params);
+            assertEquals(32, movies.length);
+            // 4 páginas de 10
+            assertEquals(4, server.getRequests());
+
+            params = new RequestParams();
+            params.setId(movies[0].getId());
+            assertEquals(movies[0].getId(), client.getById(params).getId());
+        }
+    }
+
+    @Test
+    void testNotFoundIsRemembered() throws Exception {
+
+        // Con la caché común habilitada: los "no encontrados" tienen que ir sólo a la otra
+        try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+            RequestParams search = new RequestParams();
+            search.setTitle("no existe");
+            RequestParams detail = new RequestParams();
+            detail.setId("tt9999999");
+            for (int i = 0; i < 3; ++i) {
+                assertEquals(0, client.search(search).length);
+                assertNull(client.getById(detail).getId());
+            }
+            // Sólo la primera vez se consulta a la API
+            assertEquals(2, server.getRequests());
+            assertEquals(4, client.getNegativeCache().getHits());
+            assertEquals(4, client.getMetrics().getNegativeCacheHits());
+            assertEquals(0, client.getCache().size());
+        }
+    }
+
+    @Test
+    void testTypoAlwaysFallsBackToLocalIndex() throws Exception {
+
+        try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+            RequestParams params = new RequestParams();
+            params.setTitle("gotham knight");
+            assertEquals(10, client.search(params).length);
+
+            // La API no encuentra nada, y cada vez se responde con el índice local
+            RequestParams typo = new RequestParams();
+            typo.setTitle("gotam knigt");
+            MovieData[] first = client.search(typo);
+            assertEquals(10, first.length);
+            long requests = server.getRequests();
+            assertArrayEquals(first, client.search(typo));
+            assertEquals(requests, server.getRequests());
+        }
+    }
+
+    @Test
+    void testCancelAbortsRequests() throws Exception {
+
+        server.setLatency(Duration.ofSeconds(5), Duration.ZERO);
+        try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+            RequestParams params = new RequestParams();
+            params.setTitle("joker");
+            params.setYearRange("2000", "2003");
+            CompletableFuture<MovieData[]> f = client.searchAsync(params);
+            long deadline = System.nanoTime() + 2_000_000_000L;
+            while (client.getAdmission().getInFlight() == 0 && System.nanoTime() < deadline)
+                Thread.sleep(10);
+            assertTrue(client.getAdmission().getInFlight() > 0);
+
+            // Cancelar la búsqueda libera enseguida las peticiones, sin esperar las respuestas
+            f.cancel(true);
+            deadline = System.nanoTime() + 2_000_000_000L;
+            while (client.getAdmission().getInFlight() > 0 && System.nanoTime() < deadline)
+                Thread.sleep(10);
+            assertEquals(0, client.getAdmission().getInFlight());
+            assertEquals(0, client.getMetrics().getErrors());
+        }
+    }
+
+    @Test
+    void testRetriesErrors() throws Exception {
+
+        server.setErrorRate(0.2);
+        ClientOptions options = options();
+        options.setMaxRetries(6);
+        try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+            for (int i = 0; i < 20; ++i) {
+                RequestParams params = new RequestParams();
+                params.setId(server.getCatalog().get(i).get("imdbID").getAsString());
+                assertNotNull(client.getById(params).getId());
+            }
+            assertEquals(server.getInjectedErrors(), client.getAdmission().getRetries());
+        }
+    }
+
+    @Test
+    void testDailyLimit() throws Exception {
+
+        server.setDailyLimit(1);
+        try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+            RequestParams params = new RequestParams();
+            params.setTitle("joker");
+            client.search(params);
+
+            params.setTitle("batman");
+            assertThrows(QuotaExceededException.class, () -> client.search(params));
+            // El cliente ya sabe que se agotó la cuota, no vuelve a preguntar
+            params.setTitle("city");
+            assertThrows(QuotaExceededException.class, () -> client.search(params));
+            assertEquals(2, server.getRequests());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package omdbtests;
+
+import omdb.LatencyHistogram;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testPercentiles() {
+
+        LatencyHistogram h = new LatencyHistogram();
+        assertEquals(0, h.getPercentile(50));
+
+        // 1µs, 2µs, ..., 10000µs
+        for (long i = 1; i <= 10_000; ++i)
+            h.record(i * 1_000);
+
+        assertEquals(10_000, h.getCount());
+        assertEquals(10_000_000, h.getMax());
+        assertEquals(5_000_500, h.getMean(), 1);
+        assertEquals(5_000_000, h.getPercentile(50), 5_000_000 * 0.07);
+        assertEquals(9_900_000, h.getPercentile(99), 9_900_000 * 0.07);
+        assertEquals(9_990_000, h.getPercentile(99.9), 9_990_000 * 0.07);
+        assertEquals(10_000_000, h.getPercentile(100));
+
+        // Valores chicos se registran exactos
+        LatencyHistogram small = new LatencyHistogram();
+        small.record(3);
+        small.record(7);
+        assertEquals(3, small.getPercentile(50));
+        assertEquals(7, small.getPercentile(99));
+    }
+}
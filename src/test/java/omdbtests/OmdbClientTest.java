@@ -1,18 +1,37 @@
 package omdbtests;
 
+import moviedata.LazyMovieData;
 import moviedata.MovieData;
 import omdb.OmdbClient;
 import omdb.RequestParams;
 import org.junit.jupiter.api.Test;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class OmdbClientTest {
 
+    /**
+     * Llama al parser privado de búsquedas de {@link OmdbClient OmdbClient} y devuelve los resultados de la
+     * página
+     */
+    @SuppressWarnings("unchecked")
+    private static Set<MovieData> parseSearchResults(String json) throws ReflectiveOperationException {
+
+        Method parseSearchPage = OmdbClient.class.getDeclaredMethod("parseSearchPage", byte[].class);
+        parseSearchPage.setAccessible(true);
+        Object page = parseSearchPage.invoke(null, (Object) json.getBytes(StandardCharsets.UTF_8));
+        Field results = page.getClass().getDeclaredField("results");
+        results.setAccessible(true);
+        return (Set<MovieData>) results.get(page);
+    }
+
     @Test
     void testBuildQueryString() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
 
@@ -35,13 +54,46 @@ class OmdbClientTest {
         p.setId("tt1234567");
         assertEquals("BASEURL?apikey=APIKEY&i=tt1234567&type=movie&y=2004&", buildQueryString.invoke(c, p, true));
         assertEquals("BASEURL?apikey=APIKEY&i=tt1234567&type=movie&y=2004&", buildQueryString.invoke(c, p, false));
+
+        p.setPage("3");
+        assertEquals("BASEURL?apikey=APIKEY&i=tt1234567&type=movie&y=2004&page=3&", buildQueryString.invoke(c, p, true));
+    }
+
+    @Test
+    void testCanonicalParams() {
+
+        RequestParams a = new RequestParams();
+        a.setTitle("Star_Wars");
+        a.setYear("1977");
+        RequestParams b = new RequestParams();
+        b.setTitle("star wars");
+        b.setYear("1977");
+        assertEquals(a.toCanonicalString(), b.toCanonicalString());
+
+        b.setYearRange("1977", "1980");
+        assertNotEquals(a.toCanonicalString(), b.toCanonicalString());
+        assertEquals(b.toCanonicalString(), new RequestParams(b).toCanonicalString());
     }
 
     @Test
-    void testParseSearchResults() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+    void testCanonicalParamsIgnoreDefaultLocale() {
+
+        // En turco "I" pasa a minúscula como "ı" (sin punto)
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            RequestParams a = new RequestParams();
+            a.setTitle("INDIANA JONES");
+            RequestParams b = new RequestParams();
+            b.setTitle("indiana jones");
+            assertEquals(a.toCanonicalString(), b.toCanonicalString());
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
 
-        Method parseSearchResults = OmdbClient.class.getDeclaredMethod("parseSearchResults", String.class);
-        parseSearchResults.setAccessible(true);
+    @Test
+    void testParseSearchResults() throws ReflectiveOperationException {
 
         String json = "{\"Search\":[{\"Title\":\"Berserk: The Golden Age Arc I - The Egg of the King\",\"Year\":\"2012\",\"imdbID\":\"tt2210479\",\"Type\":\"movie\"}," +
                 "{\"Title\":\"Berserk: The Golden Age Arc II - The Battle for Doldrey\",\"Year\":\"2012\",\"imdbID\":\"tt2358911\",\"Type\":\"movie\"}," +
@@ -54,15 +106,12 @@ class OmdbClientTest {
                 "\"Berserk: The Golden Age Arc III - The Advent\":\n\tAño: 2013\n\tTipo: movie\n\timdbID: tt2358913\n, " +
                 "\"Berserk: The Golden Age Arc - Memorial Edition\":\n\tAño: 2022–\n\tTipo: series\n\timdbID: tt22445494\n]";
 
-        Set<MovieData> movies = (Set<MovieData>) parseSearchResults.invoke(null, json);
+        Set<MovieData> movies = parseSearchResults(json);
         assertEquals(movieDataString, movies.toString());
     }
 
     @Test
-    void testBuildMovieData() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
-
-        Method buildMovieData = OmdbClient.class.getDeclaredMethod("buildMovieData", String.class, String.class);
-        buildMovieData.setAccessible(true);
+    void testBuildMovieData() {
 
         String json = "{\"Title\":\"Ghost in the Shell\",\"Year\":\"1995\",\"Rated\":\"TV-MA\",\"Released\":\"29 Mar 1996\"," +
                 "\"Runtime\":\"83 min\",\"Genre\":\"Animation, Action, Crime\",\"Director\":\"Mamoru Oshii\"," +
@@ -83,7 +132,32 @@ class OmdbClientTest {
                 "7.9\n\timdbVotes: 153,334\n\timdbID: tt0113568\n\tType: movie\n\tDVD: 15 Dec 2010\n\tBoxOffice: $889,074\n\tProduction: " +
                 "N/A\n\tWebsite: N/A\n\tResponse: True\n";
 
-        MovieData m = (MovieData) buildMovieData.invoke(null, json, "Detalles");
+        MovieData m = LazyMovieData.parse(json.getBytes(StandardCharsets.UTF_8), "Detalles");
+        assertEquals(movieDataString, m.toString());
+    }
+
+    @Test
+    void testBuildMovieDataNestedValues() {
+
+        String json = "{\"Title\":\"Say \\\"hi\\\"\",\"Votes\":1234,\"Rated\":null,\"Tags\":[\"a\",null,[\"b\"]]," +
+                "\"Box\":{\"Total\":true,\"By\":{\"US\":\"$1\"}}}";
+        String movieDataString = "Detalles:\n\tTitle: Say \"hi\"\n\tVotes: 1234\n\tTags:\n\t\t1: a\n\t\t3:\n\t\t\t1: b\n" +
+                "\tBox:\n\t\tTotal: true\n\t\tBy:\n\t\t\tUS: $1\n";
+
+        MovieData m = LazyMovieData.parse(json.getBytes(StandardCharsets.UTF_8), "Detalles");
         assertEquals(movieDataString, m.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testParseSearchResultsRemovesDuplicates() throws ReflectiveOperationException {
+
+        String json = "{\"Search\":[{\"Title\":\"A\",\"Year\":\"2001\",\"imdbID\":\"tt1\",\"Type\":\"movie\"}," +
+                "{\"Title\":\"B\",\"Year\":\"2002\",\"imdbID\":\"tt2\",\"Type\":\"movie\"}," +
+                "{\"Title\":\"A\",\"Year\":\"2001–2003\",\"imdbID\":\"tt1\",\"Type\":\"series\"}]," +
+                "\"totalResults\":\"3\",\"Response\":\"True\"}";
+
+        Set<MovieData> movies = parseSearchResults(json);
+        assertEquals(2, movies.size());
+        assertEquals("tt1", movies.iterator().next().getId());
+    }
+}
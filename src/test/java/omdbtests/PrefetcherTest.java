@@ -0,0 +1,67 @@
+package omdbtests;
+
+import fakeomdb.FakeOmdbServer;
+import moviedata.MovieData;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.Prefetcher;
+import omdb.RequestParams;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefetcherTest {
+
+    @Test
+    void testPrefetch() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+            ClientOptions options = new ClientOptions();
+            options.setRateLimitPerSecond(0);
+            options.setPrefetchCount(3);
+
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                Prefetcher prefetcher = client.getPrefetcher();
+                RequestParams params = new RequestParams();
+                params.setTitle("joker");
+                MovieData[] movies = client.search(params);
+
+                long deadline = System.nanoTime() + 5_000_000_000L;
+                while (prefetcher.getCompleted() < 3 && System.nanoTime() < deadline)
+                    Thread.sleep(10);
+                assertEquals(3, prefetcher.getCompleted());
+                assertEquals(4, server.getRequests());
+
+                // Elegir uno de los primeros resultados no genera otra petición
+                params = new RequestParams();
+                params.setId(movies[1].getId());
+                assertEquals(movies[1].getId(), client.getById(params).getId());
+                assertEquals(4, server.getRequests());
+                assertEquals(1, prefetcher.getHits());
+                assertEquals(1.0 / 3, prefetcher.getHitRate(), 1e-9);
+
+                // Otra búsqueda cancela los pedidos anticipados que estén en curso
+                server.setLatency(Duration.ofMillis(500), Duration.ZERO);
+                params = new RequestParams();
+                params.setTitle("city");
+                client.search(params);
+                // Sale de la caché, pero igual cancela los anteriores y los vuelve a pedir
+                movies = client.search(params);
+                assertEquals(9, prefetcher.getStarted());
+                deadline = System.nanoTime() + 5_000_000_000L;
+                while (prefetcher.getCancelled() < 3 && System.nanoTime() < deadline)
+                    Thread.sleep(10);
+                assertEquals(3, prefetcher.getCancelled());
+
+                // El que se eligió después de repetir la búsqueda cuenta como pedido anticipado
+                params = new RequestParams();
+                params.setId(movies[0].getId());
+                client.getById(params);
+                assertEquals(2, prefetcher.getHits() + prefetcher.getInFlightHits());
+            }
+        }
+    }
+}
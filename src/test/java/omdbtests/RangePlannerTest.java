@@ -0,0 +1,107 @@
+package omdbtests;
+
+import fakeomdb.FakeOmdbServer;
+import moviedata.MovieData;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RangePlannerTest {
+
+    private static ClientOptions options() {
+
+        ClientOptions options = new ClientOptions();
+        options.setRateLimitPerSecond(0);
+        options.setCacheMaxEntries(0);
+        options.setPrefetchCount(0);
+        options.setLocalSearch(ClientOptions.LocalSearch.OFF);
+        return options;
+    }
+
+    private static RequestParams range(String title, int from, int to) {
+
+        RequestParams params = new RequestParams();
+        params.setTitle(title);
+        params.setYearRange(Integer.toString(from), Integer.toString(to));
+        params.setAllPages(true);
+        return params;
+    }
+
+    private static List<String> ids(MovieData[] movies) {
+
+        List<String> ids = new ArrayList<>();
+        for (MovieData m : movies)
+            ids.add(m.getId());
+        return ids;
+    }
+
+    /**
+     * Lo que devolvería buscar año por año
+     */
+    private static List<String> perYear(OmdbClient client, String title, int from, int to) throws Exception {
+
+        Set<String> ids = new LinkedHashSet<>();
+        for (int year = from; year <= to; ++year) {
+            RequestParams params = new RequestParams();
+            params.setTitle(title);
+            params.setYear(Integer.toString(year));
+            params.setAllPages(true);
+            ids.addAll(ids(client.search(params)));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    @Test
+    void testFewResultsAreFiltered() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+            List<String> expected;
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+                expected = perYear(client, "gotham knight", 1900, 2024);
+            }
+            assertEquals(16, expected.size());
+
+            long before = server.getRequests();
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+                assertEquals(expected, ids(client.search(range("gotham knight", 1900, 2024))));
+                // La búsqueda sin año tiene 2 páginas, en lugar de 125 años
+                assertEquals(2, server.getRequests() - before);
+                assertEquals(123, client.getPlanner().getSavedRequests());
+
+                // Ya se sabe el total y qué años están vacíos: uno sin nada no cuesta ninguna petición
+                before = server.getRequests();
+                assertEquals(0, client.search(range("gotham knight", 1900, 1940)).length);
+                assertEquals(0, client.search(range("nada parecido", 1900, 2024)).length);
+                assertEquals(1, server.getRequests() - before);
+            }
+        }
+    }
+
+    @Test
+    void testManyResultsSkipEmptyYears() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options())) {
+                // 1000 resultados no entran en una búsqueda, así que va año por año
+                MovieData[] first = client.search(range("batman", 1900, 2024));
+                long firstRequests = server.getRequests();
+
+                long before = server.getRequests();
+                MovieData[] second = client.search(range("batman", 1900, 2024));
+                assertEquals(ids(first), ids(second));
+                // La segunda vez se saltean los 43 años anteriores a 1943, que ya se sabe que están vacíos
+                assertEquals(firstRequests - 1 - 43, server.getRequests() - before);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package omdbtests;
+
+import fakeomdb.FakeOmdbServer;
+import moviedata.MovieData;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.Ranking;
+import omdb.RequestParams;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankingTest {
+
+    @Test
+    void testTopByRating() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+            ClientOptions options = new ClientOptions();
+            options.setRateLimitPerSecond(0);
+            options.setRankTopK(5);
+            options.setRankConcurrency(2);
+
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                RequestParams params = new RequestParams();
+                params.setTitle("joker");
+                params.setType("movie");
+                params.setAllPages(true);
+                MovieData[] movies = client.search(params);
+                assertEquals(32, movies.length);
+
+                // Lo esperado: ordenar todos por puntaje, a igual puntaje en el orden de la búsqueda
+                List<String> expected = new ArrayList<>();
+                List<Double> ratings = new ArrayList<>();
+                for (MovieData m : movies) {
+                    RequestParams p = new RequestParams();
+                    p.setId(m.getId());
+                    expected.add(m.getId());
+                    ratings.add(Double.parseDouble(client.getById(p).getValue("imdbRating")));
+                }
+                List<String> order = new ArrayList<>(expected);
+                order.sort(Comparator.comparingDouble(id -> -ratings.get(expected.indexOf(id))));
+
+                long requests = server.getRequests();
+                Ranking ranking = client.rankAsync(movies, ClientOptions.RankBy.IMDB_RATING, null).get();
+                // Los detalles ya estaban en la caché
+                assertEquals(requests, server.getRequests());
+                assertTrue(ranking.isComplete());
+                MovieData[] top = ranking.getTop();
+                assertEquals(5, top.length);
+                for (int i = 0; i < top.length; ++i)
+                    assertEquals(order.get(i), top[i].getId());
+
+                // Con la opción, search() devuelve los mejores primero y el resto en el orden de la API
+                options.setRankBy(ClientOptions.RankBy.IMDB_RATING);
+                try (OmdbClient ranked = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                    MovieData[] sorted = ranked.search(params);
+                    assertEquals(movies.length, sorted.length);
+                    List<String> rest = new ArrayList<>(expected);
+                    for (int i = 0; i < 5; ++i) {
+                        assertEquals(order.get(i), sorted[i].getId());
+                        rest.remove(order.get(i));
+                    }
+                    for (int i = 5; i < sorted.length; ++i)
+                        assertEquals(rest.get(i - 5), sorted[i].getId());
+                }
+            }
+        }
+    }
+}
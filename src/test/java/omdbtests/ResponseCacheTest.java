@@ -0,0 +1,90 @@
+package omdbtests;
+
+import omdb.ResponseCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    @Test
+    void testLruByEntries() {
+
+        ResponseCache<String> cache = new ResponseCache<>(2, 1000, Duration.ofHours(1));
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 1);
+        assertEquals("A", cache.get("a")); // "b" pasa a ser la menos usada
+        cache.put("c", "C", 1);
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+    }
+
+    @Test
+    void testLruByBytes() {
+
+        ResponseCache<String> cache = new ResponseCache<>(100, 10, Duration.ofHours(1));
+        cache.put("a", "A", 4);
+        cache.put("b", "B", 4);
+        cache.put("c", "C", 4);
+        assertNull(cache.get("a"));
+        assertEquals(8, cache.getBytes());
+
+        cache.put("grande", "X", 11); // Más grande que la caché entera, no se guarda
+        assertNull(cache.get("grande"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testTtl() {
+
+        MutableClock clock = new MutableClock();
+        ResponseCache<String> cache = new ResponseCache<>(10, 100, Duration.ofMinutes(10), clock);
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 1, Duration.ofMinutes(1));
+
+        clock.advance(Duration.ofMinutes(2));
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+
+        clock.advance(Duration.ofMinutes(10));
+        assertNull(cache.get("a"));
+        assertEquals(2, cache.getExpirations());
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getBytes());
+    }
+
+    private static class MutableClock extends Clock {
+
+        private Instant now = Instant.EPOCH;
+
+        void advance(Duration d) {
+            now = now.plus(d);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package omdbtests;
+
+import fakeomdb.FakeOmdbServer;
+import moviedata.MovieData;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import omdb.RequestParams;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchStreamTest {
+
+    /**
+     * Guarda lo que recibe y pide sólo lo que se le indique
+     */
+    private static class Recorder implements Flow.Subscriber<MovieData> {
+
+        final List<MovieData> items = new ArrayList<>();
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        private final long initialRequest;
+
+        Recorder(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) subscription.request(initialRequest);
+        }
+
+        @Override
+        public synchronized void onNext(MovieData item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            finished.countDown();
+        }
+
+        synchronized int received() {
+            return items.size();
+        }
+    }
+
+    private static RequestParams range() {
+
+        RequestParams params = new RequestParams();
+        params.setTitle("batman");
+        params.setYearRange("2000", "2005");
+        return params;
+    }
+
+    @Test
+    void testStreamMatchesSearch() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+            ClientOptions options = new ClientOptions();
+            options.setRateLimitPerSecond(0);
+
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                Recorder recorder = new Recorder(Long.MAX_VALUE);
+                client.searchStream(range()).subscribe(recorder);
+                assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+                assertNull(recorder.error);
+
+                // Los mismos resultados que la búsqueda normal (que ahora sale de la caché), sin duplicados
+                Set<String> streamed = new HashSet<>();
+                for (MovieData m : recorder.items)
+                    assertTrue(streamed.add(m.getId()));
+                long requests = server.getRequests();
+                Set<String> searched = new HashSet<>();
+                for (MovieData m : client.search(range()))
+                    searched.add(m.getId());
+                assertEquals(searched, streamed);
+                assertEquals(requests, server.getRequests());
+
+                // searchAsync da lo mismo, en el orden de search()
+                CompletableFuture<MovieData[]> future = client.searchAsync(range());
+                assertEquals(searched.size(), future.get(5, TimeUnit.SECONDS).length);
+            }
+        }
+    }
+
+    @Test
+    void testBackpressureAndCancel() throws Exception {
+
+        try (FakeOmdbServer server = new FakeOmdbServer()) {
+            server.start();
+            ClientOptions options = new ClientOptions();
+            options.setRateLimitPerSecond(0);
+
+            try (OmdbClient client = new OmdbClient(server.getBaseUrl(), FakeOmdbServer.API_KEY, options)) {
+                // Sólo se entrega lo pedido, aunque ya hayan llegado todas las respuestas
+                Recorder recorder = new Recorder(2);
+                client.searchStream(range()).subscribe(recorder);
+                long deadline = System.nanoTime() + 5_000_000_000L;
+                while (server.getRequests() < 6 && System.nanoTime() < deadline)
+                    Thread.sleep(10);
+                Thread.sleep(200);
+                assertEquals(2, recorder.received());
+                assertEquals(1, recorder.finished.getCount());
+                recorder.subscription.request(Long.MAX_VALUE);
+                assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+                assertTrue(recorder.received() > 2);
+
+                // Cancelar antes de que lleguen las respuestas no entrega nada
+                server.setLatency(Duration.ofMillis(300), Duration.ZERO);
+                RequestParams params = range();
+                params.setTitle("city");
+                recorder = new Recorder(Long.MAX_VALUE);
+                client.searchStream(params).subscribe(recorder);
+                recorder.subscription.cancel();
+                Thread.sleep(600);
+                assertEquals(0, recorder.received());
+                assertEquals(1, recorder.finished.getCount());
+
+                // Pedir 0 elementos es un error, según la especificación
+                recorder = new Recorder(0);
+                client.searchStream(params).subscribe(recorder);
+                recorder.subscription.request(0);
+                assertTrue(recorder.finished.await(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalArgumentException.class, recorder.error);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package omdbtests;
+
+import omdb.SingleFlight;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void testCoalesce() {
+
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        AtomicInteger started = new AtomicInteger();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> a = flights.execute("tt0113568", () -> {
+            started.incrementAndGet();
+            return source;
+        });
+        CompletableFuture<String> b = flights.execute("tt0113568", () -> {
+            started.incrementAndGet();
+            return new CompletableFuture<>();
+        });
+
+        assertEquals(1, started.get());
+        assertEquals(1, flights.getCoalesced());
+        assertEquals(1, flights.getInFlight());
+
+        source.complete("Ghost in the Shell");
+        assertEquals("Ghost in the Shell", a.join());
+        assertEquals("Ghost in the Shell", b.join());
+        assertEquals(0, flights.getInFlight());
+
+        // Una vez terminada, la siguiente se vuelve a iniciar
+        flights.execute("tt0113568", () -> {
+            started.incrementAndGet();
+            return CompletableFuture.completedFuture("otra vez");
+        });
+        assertEquals(2, started.get());
+        assertEquals(2, flights.getExecuted());
+    }
+
+    @Test
+    void testCancel() {
+
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> a = flights.execute("key", () -> source);
+        CompletableFuture<String> b = flights.execute("key", () -> source);
+
+        // Cancelar uno no afecta al otro
+        a.cancel(true);
+        assertFalse(source.isCancelled());
+        assertFalse(b.isDone());
+
+        // Si lo cancelan todos, se cancela la operación
+        b.cancel(true);
+        assertTrue(source.isCancelled());
+        assertEquals(0, flights.getInFlight());
+    }
+}
@@ -0,0 +1,92 @@
+package servertests;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpServer;
+import omdb.ClientOptions;
+import omdb.OmdbClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.OmdbServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OmdbServerTest {
+
+    private HttpServer upstream;
+    private OmdbClient client;
+    private OmdbServer server;
+    private final HttpClient http = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws IOException {
+
+        // Simula la API con las respuestas de ejemplo
+        upstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        upstream.createContext("/", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            String fixture = query.contains("s=") ? "search_page.json" : "detail_small.json";
+            byte[] body;
+            try (InputStream in = getClass().getClassLoader().getResourceAsStream("fixtures/" + fixture)) {
+                body = in.readAllBytes();
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        upstream.start();
+
+        client = new OmdbClient("http://127.0.0.1:" + upstream.getAddress().getPort() + "/", "key",
+                new ClientOptions());
+        server = new OmdbServer(client, new InetSocketAddress("127.0.0.1", 0), 4, 16);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        client.close();
+        upstream.stop(0);
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + pathAndQuery);
+        return http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testEndpoints() throws IOException, InterruptedException {
+
+        HttpResponse<String> response = get("/search?s=batman&y=1989");
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json; charset=utf-8", response.headers().firstValue("Content-Type").orElse(""));
+        JsonObject search = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(10, search.get("count").getAsInt());
+        assertEquals("Batman: City", search.getAsJsonArray("results").get(0)
+                .getAsJsonObject().get("Title").getAsString());
+
+        response = get("/title/tt0113568");
+        assertEquals(200, response.statusCode());
+        assertEquals("Ghost in the Shell", JsonParser.parseString(response.body()).getAsJsonObject()
+                .get("Title").getAsString());
+
+        assertEquals(400, get("/search").statusCode());
+        assertEquals(400, get("/search?s=batman&y=2000-1990").statusCode());
+        assertEquals(400, get("/search?s=batman&y=1-2000000000").statusCode());
+        assertEquals(400, get("/search?s=batman&y=-5-2000").statusCode());
+        assertEquals(400, get("/title/abc").statusCode());
+        assertEquals(404, get("/otra").statusCode());
+        assertEquals(8, server.getHandled());
+    }
+}